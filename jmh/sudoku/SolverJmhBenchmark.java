@@ -0,0 +1,129 @@
+package sudoku;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/**
+ * SolverJmhBenchmark runs the Board operations of SolverBenchmark with JMH, for every level.
+ * <p>
+ * Every benchmark cycles through the first puzzles of the level file. Operations that change the
+ * board work on a copy of a loaded board, restored with Board.copyFrom() before every call, so the
+ * numbers include that copy. Unlike SolverBenchmark every benchmark and level runs in its own
+ * forked JVM, and the results are consumed by JMH instead of a volatile sink.
+ * <p>
+ * JMH does not take benchmarks in the default package, and a class in a package cannot name the
+ * classes of the program, so the operations come from SolverBenchmark.operations() by reflection,
+ * once per trial. A fork runs only one operation, so its call is inlined as a direct call would be.
+ * <p>
+ * Run it with "gradle jmh" from the project directory (the level files are read from the working
+ * directory); the build adds the gc profiler, so the bytes allocated per operation are reported
+ * as gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverJmhBenchmark {
+    @Param({"1", "2", "3", "4", "5"})
+    public int level;
+
+    // how many puzzles of the level to cycle through
+    @Param("200")
+    public int puzzles;
+
+    private int count;
+    private int next;
+    private IntToLongFunction getPuzzleFromFIle;
+    private IntToLongFunction clone;
+    private IntToLongFunction eliminate;
+    private IntToLongFunction solveSingleSolution;
+    private IntToLongFunction solveALLRowsSingleCandidate;
+    private IntToLongFunction solveALLColsSingleCandidate;
+    private IntToLongFunction solveAllBlockSingleCandidate;
+    private IntToLongFunction solveByAssumption;
+    private IntToLongFunction dlx;
+    private IntToLongFunction backtracking;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws ReflectiveOperationException {
+        Class<?> benchmark = Class.forName("SolverBenchmark");
+        count = (Integer) benchmark.getMethod("puzzleCount", int.class, int.class).invoke(null, level, puzzles);
+        Map<String, IntToLongFunction> operations = (Map<String, IntToLongFunction>)
+                benchmark.getMethod("operations", int.class, int.class).invoke(null, level, count);
+        getPuzzleFromFIle = operations.get("getPuzzleFromFIle");
+        clone = operations.get("clone");
+        eliminate = operations.get("eliminate");
+        solveSingleSolution = operations.get("solveSingleSolution");
+        solveALLRowsSingleCandidate = operations.get("solveALLRowsSingleCandidate");
+        solveALLColsSingleCandidate = operations.get("solveALLColsSingleCandidate");
+        solveAllBlockSingleCandidate = operations.get("solveAllBlockSingleCandidate");
+        solveByAssumption = operations.get("solveByAssumption");
+        dlx = operations.get("solver.dlx");
+        backtracking = operations.get("solver.backtracking");
+    }
+
+    /**
+     * @return the index of the puzzle to use, the next one on the next call
+     */
+    private int nextPuzzle() {
+        int i = next;
+        next = i + 1 == count ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public long getPuzzleFromFIle() {
+        return getPuzzleFromFIle.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long cloneBoard() {
+        return clone.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long eliminate() {
+        return eliminate.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solveSingleSolution() {
+        return solveSingleSolution.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solveALLRowsSingleCandidate() {
+        return solveALLRowsSingleCandidate.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solveALLColsSingleCandidate() {
+        return solveALLColsSingleCandidate.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solveAllBlockSingleCandidate() {
+        return solveAllBlockSingleCandidate.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solveByAssumption() {
+        return solveByAssumption.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solverDlx() {
+        return dlx.applyAsLong(nextPuzzle());
+    }
+
+    @Benchmark
+    public long solverBacktracking() {
+        return backtracking.applyAsLong(nextPuzzle());
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * BacktrackingSolver is a depth-first search that makes all its guesses on a single mutable board.
+ * <p>
+ * Every change of a candidate mask is written to an undo trail first. When a guess turns out to be
+ * wrong, the trail is rolled back to where it was before the guess, so the search never clones a board
+ * and does not allocate after construction. Placements propagate naked singles, and the next cell to
+ * guess is the empty cell with the fewest possibilities.
+ */
+public final class BacktrackingSolver implements Solver {
+    public static final String NAME = "backtracking";
+
+    // a candidate mask can shrink at most 9 times plus once when the cell is placed
+    private static final int TRAIL_SIZE = 81 * 10;
+
+    private final byte[] grid = new byte[81];
+    private final short[] candidates = new short[81];
+    // undo trail of (cell, old mask)
+    private final int[] trailCell = new int[TRAIL_SIZE];
+    private final short[] trailMask = new short[TRAIL_SIZE];
+    private int trailTop;
+    // cells placed since the start, in order
+    private final int[] placed = new int[81];
+    private int placedTop;
+    // pending placements found by propagation
+    private final int[] queueCell = new int[82];
+    private final int[] queueNum = new int[82];
+    private final byte[] result = new byte[81];
+    private int solutions;
+    private int limit;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean solve(byte[] grid) {
+        if (countSolutions(grid, 1) == 0) {
+            return false;
+        }
+        System.arraycopy(result, 0, grid, 0, 81);
+        return true;
+    }
+
+    /**
+     * Search solutions of a grid until limit solutions are found.
+     * The first solution found is kept in result.
+     */
+    @Override
+    public int countSolutions(byte[] puzzle, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit should be 1 or more: " + limit);
+        }
+        java.util.Arrays.fill(grid, (byte) 0);
+        java.util.Arrays.fill(candidates, (short) CandidateSet.ALL);
+        trailTop = 0;
+        placedTop = 0;
+        solutions = 0;
+        this.limit = limit;
+
+        for (int cell = 0; cell < 81; cell++) {
+            if (puzzle[cell] != 0 && !assign(cell, puzzle[cell])) {
+                return 0;
+            }
+        }
+        search();
+        return solutions;
+    }
+
+    /**
+     * Guess the empty cell with the fewest possibilities and go deeper.
+     *
+     * @return true if enough solutions are found and the search should stop
+     */
+    private boolean search() {
+        int best = -1;
+        int bestCount = 10;
+        for (int cell = 0; cell < 81; cell++) {
+            if (grid[cell] == 0) {
+                int count = CandidateSet.count(candidates[cell]);
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                    if (count <= 1) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best < 0) {
+            if (solutions++ == 0) {
+                System.arraycopy(grid, 0, result, 0, 81);
+            }
+            return solutions >= limit;
+        }
+
+        int trailMark = trailTop;
+        int placedMark = placedTop;
+        for (int mask = candidates[best]; mask != 0; mask = CandidateSet.withoutLowest(mask)) {
+            if (assign(best, CandidateSet.lowest(mask)) && search()) {
+                return true;
+            }
+            undo(trailMark, placedMark);
+        }
+        return false;
+    }
+
+    /**
+     * Place a number, remove it from the peers and place every naked single that appears.
+     *
+     * @param cell the cell index
+     * @param num  the number
+     * @return false if a contradiction is found (the changes are still on the trail)
+     */
+    private boolean assign(int cell, int num) {
+        int head = 0;
+        int tail = 0;
+        queueCell[tail] = cell;
+        queueNum[tail++] = num;
+        while (head < tail) {
+            int c = queueCell[head];
+            int d = queueNum[head++];
+            if (grid[c] != 0) {
+                if (grid[c] != d) {
+                    return false;
+                }
+                continue;
+            }
+            int bit = CandidateSet.bit(d);
+            if ((candidates[c] & bit) == 0) {
+                return false;
+            }
+            grid[c] = (byte) d;
+            placed[placedTop++] = c;
+            save(c);
+            candidates[c] = 0;
+            for (int peer : Grid.PEERS[c]) {
+                if ((candidates[peer] & bit) != 0) {
+                    save(peer);
+                    int mask = candidates[peer] & ~bit;
+                    candidates[peer] = (short) mask;
+                    if (mask == 0) {
+                        return false;
+                    }
+                    if (CandidateSet.isSingle(mask)) {
+                        queueCell[tail] = peer;
+                        queueNum[tail++] = CandidateSet.lowest(mask);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write the current mask of a cell to the trail.
+     *
+     * @param cell the cell index
+     */
+    private void save(int cell) {
+        trailCell[trailTop] = cell;
+        trailMask[trailTop++] = candidates[cell];
+    }
+
+    /**
+     * Roll back the trail and the placed cells to the given marks.
+     *
+     * @param trailMark  the trail size to go back to
+     * @param placedMark the placed size to go back to
+     */
+    private void undo(int trailMark, int placedMark) {
+        while (trailTop > trailMark) {
+            trailTop--;
+            candidates[trailCell[trailTop]] = trailMask[trailTop];
+        }
+        while (placedTop > placedMark) {
+            grid[placed[--placedTop]] = 0;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * BatchSolver solves whole level files in parallel and writes one result per puzzle.
+ * <p>
+ * Puzzles are spread over a ForkJoinPool. Every worker thread has its own Board and its own
+ * TechniquePipeline (or Solver engine), so the threads share nothing but the read-only PuzzleLibrary.
+ * <p>
+ * A wrong command line prints the usage and exits with status 2.
+ * <p>
+ * usage: BatchSolver [-threads N] [-engine techniques|dlx|backtracking] [-format csv|json] [-out file] [level]...
+ */
+public final class BatchSolver {
+    public static final String TECHNIQUES = "techniques";
+    public static final String USAGE = "usage: BatchSolver [-threads N] [-engine techniques|dlx|backtracking]"
+            + " [-format csv|json] [-out file] [level]...";
+
+    /**
+     * The result of one puzzle.
+     */
+    public static final class Result {
+        public final int level;
+        public final int puzzleNum;
+        public final boolean solved;
+        public final long nanos;
+        // how many times each technique made progress, i.e. "naked_single=45;hidden_single_row=2"
+        public final String techniques;
+
+        Result(int level, int puzzleNum, boolean solved, long nanos, String techniques) {
+            this.level = level;
+            this.puzzleNum = puzzleNum;
+            this.solved = solved;
+            this.nanos = nanos;
+            this.techniques = techniques;
+        }
+    }
+
+    private final String engine;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Board> boards = ThreadLocal.withInitial(Board::new);
+    private final ThreadLocal<TechniquePipeline> pipelines = ThreadLocal.withInitial(TechniquePipeline::standard);
+    private final ThreadLocal<Solver> solvers;
+
+    /**
+     * Constructor
+     *
+     * @param engine  "techniques" for the TechniquePipeline, or a Solver name
+     * @param threads how many worker threads
+     */
+    public BatchSolver(String engine, int threads) {
+        this.engine = engine;
+        this.pool = new ForkJoinPool(threads);
+        this.solvers = TECHNIQUES.equals(engine) ? null : ThreadLocal.withInitial(() -> Solver.forName(engine));
+        if (solvers != null) {
+            // fail now on a wrong engine name instead of in every worker
+            Solver.forName(engine);
+        }
+    }
+
+    /**
+     * Solve every puzzle of a source in parallel.
+     *
+     * If the calling thread is interrupted, the puzzles not started yet are skipped and nothing
+     * is returned: it throws, with the interrupt flag still set.
+     *
+     * @param level   the level written in the results
+     * @param puzzles the puzzles
+     * @return the results of every puzzle, in puzzle order
+     * @throws IllegalStateException if the calling thread is interrupted while waiting
+     */
+    public List<Result> solveAll(int level, PuzzleSource puzzles) {
+        Result[] results = new Result[puzzles.size()];
+        AtomicBoolean stopped = new AtomicBoolean();
+        ForkJoinTask<?> task = pool.submit(() -> IntStream.rangeClosed(1, puzzles.size()).parallel()
+                .forEach(num -> {
+                    if (!stopped.get()) {
+                        results[num - 1] = solveOne(level, puzzles, num);
+                    }
+                }));
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            stopped.set(true);
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while solving", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        List<Result> list = new ArrayList<>(results.length);
+        for (Result result : results) {
+            list.add(result);
+        }
+        return list;
+    }
+
+    /**
+     * Solve one puzzle on the board of the current thread.
+     *
+     * @param level     the level written in the result
+     * @param puzzles   the puzzles
+     * @param puzzleNum the puzzle to solve
+     * @return the result
+     */
+    private Result solveOne(int level, PuzzleSource puzzles, int puzzleNum) {
+        Board board = boards.get();
+        long start = System.nanoTime();
+        board.getPuzzleFromSource(puzzles, puzzleNum);
+        if (solvers != null) {
+            boolean solved = board.solveWith(solvers.get()) && board.isSolved();
+            return new Result(level, puzzleNum, solved, System.nanoTime() - start, engine);
+        }
+
+        TechniquePipeline pipeline = pipelines.get();
+        List<SolvingTechnique> techniques = pipeline.getTechniques();
+        int[] hits = new int[techniques.size()];
+        while (!board.isSolved()) {
+            SolvingTechnique technique = pipeline.step(board);
+            if (technique == null) {
+                break;
+            }
+            hits[techniques.indexOf(technique)]++;
+        }
+        long nanos = System.nanoTime() - start;
+
+        StringBuilder used = new StringBuilder();
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i] > 0) {
+                if (used.length() > 0) {
+                    used.append(';');
+                }
+                used.append(techniques.get(i).getName()).append('=').append(hits[i]);
+            }
+        }
+        return new Result(level, puzzleNum, board.isSolved(), nanos, used.toString());
+    }
+
+    /**
+     * Stop the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Write results as CSV with a header line.
+     *
+     * @param results the results
+     * @param out     where to write
+     */
+    public static void writeCsv(List<Result> results, PrintWriter out) {
+        out.println("level,puzzle,solved,micros,techniques");
+        for (Result r : results) {
+            out.println(r.level + "," + r.puzzleNum + "," + r.solved + "," + r.nanos / 1000 + "," + r.techniques);
+        }
+    }
+
+    /**
+     * Write results as a JSON array, one puzzle per line.
+     *
+     * @param results the results
+     * @param out     where to write
+     */
+    public static void writeJson(List<Result> results, PrintWriter out) {
+        out.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.print("{\"level\":" + r.level + ",\"puzzle\":" + r.puzzleNum + ",\"solved\":" + r.solved
+                    + ",\"micros\":" + r.nanos / 1000 + ",\"techniques\":\"" + r.techniques + "\"}");
+            out.println(i < results.size() - 1 ? "," : "");
+        }
+        out.println("]");
+    }
+
+    /**
+     * Solve level files from the command line, see the class description for usage.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String engine = TECHNIQUES;
+        String format = "csv";
+        String outFile = "batch_results.csv";
+        boolean outGiven = false;
+        List<Integer> levels = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            fail("-threads should be at least 1");
+                        }
+                        break;
+                    case "-engine":
+                        engine = args[++i];
+                        // fail now on a wrong engine name instead of after the first level
+                        if (!TECHNIQUES.equals(engine)) {
+                            Solver.forName(engine);
+                        }
+                        break;
+                    case "-format":
+                        format = args[++i].toLowerCase(Locale.ROOT);
+                        if (!format.equals("csv") && !format.equals("json")) {
+                            fail("unknown format " + args[i]);
+                        }
+                        break;
+                    case "-out":
+                        outFile = args[++i];
+                        outGiven = true;
+                        break;
+                    default:
+                        int level = Integer.parseInt(args[i]);
+                        if (level < PuzzleLibrary.MIN_LEVEL || level > PuzzleLibrary.MAX_LEVEL) {
+                            fail("level should be 1~5: " + level);
+                        }
+                        levels.add(level);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            fail("missing value of " + args[args.length - 1]);
+        } catch (IllegalArgumentException e) {
+            // a wrong number or engine name
+            fail(e.getMessage());
+        }
+        if (!outGiven && format.equals("json")) {
+            outFile = "batch_results.json";
+        }
+        if (levels.isEmpty()) {
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                levels.add(level);
+            }
+        }
+
+        BatchSolver batch = new BatchSolver(engine, threads);
+        List<Result> all = new ArrayList<>();
+        for (int level : levels) {
+            PuzzleLibrary puzzles = PuzzleLibrary.getLevel(level);
+            long start = System.nanoTime();
+            List<Result> results = batch.solveAll(level, puzzles);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+            long solved = results.stream().filter(r -> r.solved).count();
+            System.out.println("level " + level + ": solved " + solved + "/" + results.size()
+                    + " in " + millis + " ms (" + results.size() * 1000L / millis + " puzzles/s, "
+                    + threads + " threads)");
+            all.addAll(results);
+        }
+        batch.shutdown();
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outFile)))) {
+            if (format.equals("json")) {
+                writeJson(all, out);
+            } else {
+                writeCsv(all, out);
+            }
+        }
+        System.out.println("results written to " + outFile);
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -1,21 +1,71 @@
 import java.awt.*;
 import java.io.*;
 import java.util.*;
-import java.util.List;
 
 /**
  * Board class represent a board of 9x9 cells in a Sudoku game
  * <p>
  * It uses several different well-established method to solve the puzzle when user ask for tip
  * reference: https://www.sudokuoftheday.com/techniques/
+ * <p>
+ * The board is kept in primitive arrays indexed by Grid cell index (see Grid),
+ * so solving does not allocate any Point or Cell objects.
  *
  * @author Hsuanchen Wan(Walter).
  */
 public class Board implements Cloneable {
-    // a HashMap object that store all the cells
-    // it use java.awt.Point to specify coordinates of cells
-    public Map<Point, Cell> cells = new HashMap<>();
-    public Map<Point, Cell> originalCells = new HashMap<>();
+    // number in every cell, 0 means the cell is empty
+    private final byte[] digits = new byte[81];
+    private final byte[] originalDigits = new byte[81];
+    // possible numbers of every cell, as CandidateSet masks
+    private final short[] candidates = new short[81];
+    // numbers already placed in every row, column and block
+    private final short[] rowMask = new short[9];
+    private final short[] colMask = new short[9];
+    private final short[] blockMask = new short[9];
+    // how many times every number is placed in every unit, [unit * 9 + num - 1] with units as in Grid.UNITS
+    private final byte[] unitCount = new byte[27 * 9];
+    // how many numbers are placed more than once in every unit, 0 if the unit follows the rules
+    private final byte[] unitConflicts = new byte[27];
+    // how many cells have a number, kept with the unit counters
+    private int filledCount;
+    // change journal: cell and old mask of every change of possibilities since the board is loaded
+    private int[] journalCell = new int[256];
+    private short[] journalMask = new short[256];
+    private int journalTop;
+    // cells placed in order, and the journal size before each of them was placed
+    private final int[] placedCell = new int[81];
+    private final int[] placedMark = new int[81];
+    private int placedTop;
+    // precomputed solution of a bundled puzzle, null if unknown
+    private SolutionSidecar sidecar;
+    private int sidecarNum;
+    // changed every time the puzzle is loaded, transformed or reset, see getGeneration()
+    private int generation;
+    // scratch space of solveHiddenSubset() and solveFish(): possible positions in a unit of every number or line
+    private final int[] numPositions = new int[9];
+    // scratch space of the bitboard techniques, made on first use
+    private DigitBoards digitBoards;
+    private final int[] chain = new int[81];
+    // two bitboards as {lo, hi} pairs, the cells of color 0 at [0] and [1] and of color 1 at [2] and [3]
+    private final long[] colors = new long[4];
+    // engines of countSolutions(), one for each thread
+    private static final ThreadLocal<Solver> COUNTING_SOLVERS = ThreadLocal.withInitial(DlxSolver::new);
+    // all 9-bit masks with n bits set, [n], used to try the subsets of a unit
+    private static final int[][] SUBSETS = new int[5][];
+
+    static {
+        for (int n = 0; n < SUBSETS.length; n++) {
+            int size = 0;
+            int[] masks = new int[126];
+            for (int mask = 0; mask < 512; mask++) {
+                if (Integer.bitCount(mask) == n) {
+                    masks[size++] = mask;
+                }
+            }
+            SUBSETS[n] = Arrays.copyOf(masks, size);
+        }
+    }
     public Cell testCell;
 
     /**
@@ -30,17 +80,7 @@ public class Board implements Cloneable {
      * it sets all cells to 0's (i.e. an empty board)
      */
     Board() {
-        // initialize cells
-        for (int y = 1; y <= 9; y++) {
-            for (int x = 1; x <= 9; x++) {
-                cells.put(new Point(x, y), new Cell());
-            }
-        }
-        for (int y = 1; y <= 9; y++) {
-            for (int x = 1; x <= 9; x++) {
-                originalCells.put(new Point(x, y), new Cell());
-            }
-        }
+        Arrays.fill(candidates, (short) CandidateSet.ALL);
     }
 
     /**
@@ -50,34 +90,37 @@ public class Board implements Cloneable {
      * @param puzzleNum   a specific puzzle in the file (1~10000)
      */
     public void getPuzzleFromFIle(int puzzleLevel, int puzzleNum) {
-        String fileName = "level" + puzzleLevel + "Puzzles.txt";
-        String puzzle;
-
-        // Try different ways of reading the file.
         try {
-            BufferedReader reader = new BufferedReader(
-                    new FileReader(System.getProperty("user.dir") + fileName));
-            for (int i = 0; i < puzzleNum; i++) {
-                puzzle = reader.readLine();
-                listNumToCells(puzzle);
-            }
-            reader.close();
-        } catch (FileNotFoundException e) {
-            try {
-                BufferedReader reader = new BufferedReader(
-                        new FileReader(fileName));
-                for (int i = 0; i < puzzleNum; i++) {
-                    puzzle = reader.readLine();
-                    listNumToCells(puzzle);
-                }
-                reader.close();
-            } catch (IOException e1) {
-                e1.printStackTrace();
-            }
+            getPuzzleFromSource(PuzzleLibrary.getLevel(puzzleLevel), puzzleNum);
+            SolutionSidecar levelSidecar = SolutionSidecar.forLevel(puzzleLevel);
+            // a puzzle without a solution has an empty record, it has no known solution
+            sidecar = levelSidecar != null && levelSidecar.hasSolution(puzzleNum) ? levelSidecar : null;
+            sidecarNum = puzzleNum;
         } catch (IOException e) {
-            System.out.println("the file is not in [working dir]/src/HW5");
             e.printStackTrace();
         }
+    }
+
+    /**
+     * Fill the board with a puzzle of a PuzzleSource, i.e. a PuzzleLibrary or a PackedPuzzleFile
+     *
+     * @param source    the puzzles
+     * @param puzzleNum a specific puzzle in the source (1~source.size())
+     */
+    public void getPuzzleFromSource(PuzzleSource source, int puzzleNum) {
+        byte[] puzzle = new byte[81];
+        source.getPuzzle(puzzleNum, puzzle);
+        setPuzzle(puzzle);
+    }
+
+    /**
+     * Fill the board with a puzzle given as an array of 81 numbers (0 means empty)
+     *
+     * @param puzzle list of numbers
+     */
+    public void setPuzzle(byte[] puzzle) {
+        generation++;
+        listNumToCells(puzzle);
 
         // eliminate possibilities for the whole puzzle
         eliminate();
@@ -89,20 +132,188 @@ public class Board implements Cloneable {
      * @param listNum list of numbers
      */
     public void listNumToCells(String listNum) {
-        int x = 0, y = 0;
-        Cell cell;
-        for (int i = 0; i < listNum.length(); i++) {
-            cell = cells.get(new Point(x + 1, y + 1));
-            cell.setNum(Character.getNumericValue(listNum.charAt(i)));
-            cell.resetPossibility();
-            originalCells.get(new Point(x + 1, y + 1)).setNum(Character.getNumericValue(listNum.charAt(i)));
-            x++;
-            if (x > 8) {
-                x = 0;
-                y++;
+        for (int i = 0; i < listNum.length() && i < 81; i++) {
+            int num = Character.getNumericValue(listNum.charAt(i));
+            if (num < 0 || num > 9) {
+                num = 0;
             }
+            digits[i] = (byte) num;
+            originalDigits[i] = (byte) num;
+            candidates[i] = (short) CandidateSet.ALL;
         }
+        sidecar = null;
+        clearJournal();
+    }
+
+    /**
+     * Read from an array of 81 numbers (0 means empty), as given by a PuzzleSource.
+     *
+     * @param nums list of numbers
+     */
+    public void listNumToCells(byte[] nums) {
+        System.arraycopy(nums, 0, digits, 0, 81);
+        System.arraycopy(nums, 0, originalDigits, 0, 81);
+        Arrays.fill(candidates, (short) CandidateSet.ALL);
+        sidecar = null;
+        clearJournal();
+    }
 
+    /**
+     * Get the number of a cell.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return the number in the cell, 0 if empty
+     */
+    public int getNum(int col, int row) {
+        return digits[Grid.index(col, row)];
+    }
+
+    /**
+     * Get the number of a cell in the puzzle as it was loaded.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return the original number in the cell, 0 if empty
+     */
+    public int getOriginalNum(int col, int row) {
+        return originalDigits[Grid.index(col, row)];
+    }
+
+    /**
+     * Get the possible numbers of a cell as a CandidateSet mask.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return the bitmask of possible numbers
+     */
+    public int getCandidates(int col, int row) {
+        return candidates[Grid.index(col, row)];
+    }
+
+    /**
+     * Copy the numbers of the board, with the cells solved so far.
+     *
+     * @param nums the array to fill with 81 numbers (0 means empty)
+     */
+    public void getNums(byte[] nums) {
+        System.arraycopy(digits, 0, nums, 0, 81);
+    }
+
+    /**
+     * Copy the numbers of the puzzle as it was loaded.
+     *
+     * @param nums the array to fill with 81 numbers (0 means empty)
+     */
+    public void getOriginalNums(byte[] nums) {
+        System.arraycopy(originalDigits, 0, nums, 0, 81);
+    }
+
+    /**
+     * Transform the puzzle and the numbers placed so far with a Symmetry.
+     * Possible numbers are recomputed from the placed numbers.
+     *
+     * @param symmetry the transformation
+     */
+    public void transform(Symmetry symmetry) {
+        symmetry.apply(originalDigits);
+        symmetry.apply(digits);
+        Arrays.fill(candidates, (short) CandidateSet.ALL);
+        sidecar = null;
+        generation++;
+        eliminate();
+    }
+
+    /**
+     * Go back to the puzzle as it was loaded, discarding all solved cells.
+     */
+    public void reset() {
+        generation++;
+        System.arraycopy(originalDigits, 0, digits, 0, 81);
+        Arrays.fill(candidates, (short) CandidateSet.ALL);
+        eliminate();
+    }
+
+    /**
+     * The generation changes when the board gets a new puzzle, is transformed or is reset, but not
+     * when cells are solved. Work started on one generation must not be applied to another.
+     *
+     * @return the generation of the board
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return true if the solution of the puzzle is known without solving it (see SolutionSidecar)
+     */
+    public boolean hasSolution() {
+        return sidecar != null;
+    }
+
+    /**
+     * Get the number of a cell in the precomputed solution.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return the number of the cell in the solution, 0 if the solution is not known
+     */
+    public int getSolutionNum(int col, int row) {
+        return sidecar == null ? 0 : sidecar.getNum(sidecarNum, Grid.index(col, row));
+    }
+
+    /**
+     * @return true if the solution is known and every number placed so far is in it
+     */
+    public boolean agreesWithSolution() {
+        if (sidecar == null) {
+            return false;
+        }
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] != 0 && digits[i] != sidecar.getNum(sidecarNum, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build a Map<Point, Cell> copy of the current cells.
+     * It allocates a Point and a Cell for every cell, so it is meant for debugging only.
+     *
+     * @return the map of cells
+     */
+    public Map<Point, Cell> getCells() {
+        return toCellMap(digits, candidates);
+    }
+
+    /**
+     * Build a Map<Point, Cell> copy of the cells as the puzzle was loaded.
+     *
+     * @return the map of original cells
+     */
+    public Map<Point, Cell> getOriginalCells() {
+        return toCellMap(originalDigits, null);
+    }
+
+    /**
+     * Convert primitive arrays to the Map<Point, Cell> form.
+     *
+     * @param nums      number of every cell
+     * @param possibles possible numbers of every cell, or null to leave them all possible
+     * @return the map of cells
+     */
+    private static Map<Point, Cell> toCellMap(byte[] nums, short[] possibles) {
+        Map<Point, Cell> map = new HashMap<>();
+        for (int i = 0; i < 81; i++) {
+            Cell cell = new Cell();
+            cell.setNum(nums[i]);
+            if (possibles != null) {
+                cell.getPossibleNumbers().setBits(possibles[i]);
+            }
+            map.put(new Point(Grid.COL[i] + 1, Grid.ROW[i] + 1), cell);
+        }
+        return map;
     }
 
     /**
@@ -118,47 +329,59 @@ public class Board implements Cloneable {
      * |---|---|---|
      * <p>
      * if one choose block 6, it means checking the cells in row 4~6 and column 7~9
+     * <p>
+     * It reads the conflict counter of the unit, kept up to date by every placement.
      *
      * @param rule choose which rule to check
      * @param num  a row, column, or block num
      * @return false if there are
      */
     public boolean isLegal(RULE rule, int num) {
-        ArrayList<Integer> listCells = new ArrayList<>();
-        boolean isLegal = true;
+        return unitConflicts[unitIndex(rule, num)] == 0;
+    }
+
+    /**
+     * Check if a number can be placed in a cell without breaking a rule.
+     * It reads the masks of the row, column and block, so it takes constant time.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @param num the number (1~9)
+     * @return false if the number is already in the row, column or block of the cell
+     */
+    public boolean canPlace(int col, int row, int num) {
+        return (unitMask(Grid.index(col, row)) & CandidateSet.bit(num)) == 0;
+    }
 
-        // depend on the "rule" specified, use different ways to assemble the list
+    /**
+     * Check if the number of a cell is also in its row, column or block.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return false if the cell is empty or its number breaks no rule
+     */
+    public boolean isConflict(int col, int row) {
+        int index = Grid.index(col, row);
+        int num = digits[index];
+        return num != 0 && (unitCount[Grid.ROW[index] * 9 + num - 1] > 1
+                || unitCount[(9 + Grid.COL[index]) * 9 + num - 1] > 1
+                || unitCount[(18 + Grid.BLOCK[index]) * 9 + num - 1] > 1);
+    }
+
+    /**
+     * Translate a rule and a row, column, or block number to the Grid unit index.
+     *
+     * @param rule the rule
+     * @param num  a row, column, or block num (1~9)
+     * @return the unit index in Grid.UNITS
+     */
+    private static int unitIndex(RULE rule, int num) {
         if (rule == RULE.ROW) {
-            // put a row of cells to listCells
-            for (int col = 1; col <= 9; col++) {
-                listCells.add(cells.get(new Point(col, num)).getNum());
-            }
+            return num - 1;
         } else if (rule == RULE.COL) {
-            // put a column of cells to listCells
-            for (int row = 1; row <= 9; row++) {
-                listCells.add(cells.get(new Point(num, row)).getNum());
-            }
-        } else if (rule == RULE.BLOCK) {
-            // put a block of cells to listCells
-            int[] blockPo = blockNumberToBlockRowCol(num);
-            for (int row = (blockPo[0] - 1) * 3 + 1; row < (blockPo[0] * 3) + 1; row++) {
-                for (int col = (blockPo[1] - 1) * 3 + 1; col < (blockPo[1] * 3) + 1; col++) {
-                    listCells.add(cells.get(new Point(col, row)).getNum());
-                }
-            }
+            return 9 + num - 1;
         }
-
-        // check if legal
-        for (int i = 0; i < 9; i++) {
-            for (int j = i + 1; j < 9; j++) {
-                // if two numbers are the same, except the number is zero
-                if (listCells.get(i).equals(listCells.get(j)) && !listCells.get(i).equals(0)) {
-                    isLegal = false;
-                }
-            }
-        }
-
-        return isLegal;
+        return 18 + num - 1;
     }
 
     /**
@@ -167,9 +390,24 @@ public class Board implements Cloneable {
      * @param correctCell the Point where the correct cell is located
      */
     public void eliminate(Point correctCell) {
-        eliminate(RULE.ROW, correctCell, cells.get(correctCell).getNum());
-        eliminate(RULE.COL, correctCell, cells.get(correctCell).getNum());
-        eliminate(RULE.BLOCK, correctCell, cells.get(correctCell).getNum());
+        eliminate(Grid.index(correctCell.x, correctCell.y));
+    }
+
+    /**
+     * Eliminate the number of a cell from the possibilities of all its peers.
+     *
+     * @param index the cell index
+     */
+    private void eliminate(int index) {
+        int num = digits[index];
+        if (num == 0) {
+            return;
+        }
+        int keep = ~CandidateSet.bit(num);
+        for (int peer : Grid.PEERS[index]) {
+            setCandidates(peer, candidates[peer] & keep);
+        }
+        setCandidates(index, candidates[index] & keep);
     }
 
     /**
@@ -183,168 +421,639 @@ public class Board implements Cloneable {
         if (num == 0) {
             return;
         }
-        int col = correctCell.x;
-        int row = correctCell.y;
-
+        int unit;
         if (rule == RULE.ROW) {
-            for (int i = 1; i <= 9; i++) {
-                cells.get(new Point(i, row)).removePossibility(num);
+            unit = correctCell.y - 1;
+        } else if (rule == RULE.COL) {
+            unit = 9 + correctCell.x - 1;
+        } else {
+            unit = 18 + Grid.BLOCK[Grid.index(correctCell.x, correctCell.y)];
+        }
+        int keep = ~CandidateSet.bit(num);
+        for (int i : Grid.UNITS[unit]) {
+            setCandidates(i, candidates[i] & keep);
+        }
+    }
+
+    /**
+     * Eliminate board-wise.
+     * It is used usually when a new board is created (package-private for SolverBenchmark)
+     */
+    void eliminate() {
+        Arrays.fill(rowMask, (short) 0);
+        Arrays.fill(colMask, (short) 0);
+        Arrays.fill(blockMask, (short) 0);
+        Arrays.fill(unitCount, (byte) 0);
+        Arrays.fill(unitConflicts, (byte) 0);
+        filledCount = 0;
+        clearJournal();
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] != 0) {
+                countNum(i, digits[i], 1);
+                candidates[i] = 0;
+            }
+        }
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] == 0) {
+                candidates[i] &= ~unitMask(i);
+            }
+        }
+    }
+
+    /**
+     * @param index the cell index
+     * @return numbers already placed in the row, column and block of the cell
+     */
+    private int unitMask(int index) {
+        return rowMask[Grid.ROW[index]] | colMask[Grid.COL[index]] | blockMask[Grid.BLOCK[index]];
+    }
+
+    /**
+     * Add or remove a placed number to the counters of the row, column and block of a cell.
+     *
+     * @param index the cell index
+     * @param num   the number
+     * @param delta 1 when placed, -1 when removed
+     */
+    private void countNum(int index, int num, int delta) {
+        int bit = CandidateSet.bit(num);
+        int row = Grid.ROW[index];
+        int col = Grid.COL[index];
+        int block = Grid.BLOCK[index];
+        filledCount += delta;
+        rowMask[row] = (short) updateCount(row * 9 + num - 1, delta, rowMask[row], bit);
+        colMask[col] = (short) updateCount((9 + col) * 9 + num - 1, delta, colMask[col], bit);
+        blockMask[block] = (short) updateCount((18 + block) * 9 + num - 1, delta, blockMask[block], bit);
+    }
+
+    /**
+     * Update a counter of unitCount.
+     *
+     * @param counter the counter index
+     * @param delta   1 or -1
+     * @param mask    the mask of the unit
+     * @param bit     the bit of the number
+     * @return the new mask of the unit
+     */
+    private int updateCount(int counter, int delta, int mask, int bit) {
+        unitCount[counter] += delta;
+        // a second copy of a number makes a conflict, removing it ends the conflict
+        if (unitCount[counter] == (delta > 0 ? 2 : 1)) {
+            unitConflicts[counter / 9] += delta;
+        }
+        return unitCount[counter] > 0 ? mask | bit : mask & ~bit;
+    }
+
+    /**
+     * Change the possibilities of a cell, writing the old mask to the journal.
+     *
+     * @param index the cell index
+     * @param mask  the new mask
+     */
+    private void setCandidates(int index, int mask) {
+        if (candidates[index] == mask) {
+            return;
+        }
+        if (journalTop == journalCell.length) {
+            journalCell = Arrays.copyOf(journalCell, journalTop * 2);
+            journalMask = Arrays.copyOf(journalMask, journalTop * 2);
+        }
+        journalCell[journalTop] = index;
+        journalMask[journalTop++] = candidates[index];
+        SolverMetrics.eliminated(Integer.bitCount(candidates[index] & ~mask));
+        candidates[index] = (short) mask;
+    }
+
+    /**
+     * Forget all recorded changes, undo will then refresh possibilities from the counters.
+     */
+    private void clearJournal() {
+        journalTop = 0;
+        placedTop = 0;
+    }
+
+    /**
+     * Translate from "block number" to the block row and column number.
+     * <p>
+     * block number is represented as
+     * |---|---|---|
+     * | 1 | 2 | 3 |
+     * |---|---|---|
+     * | 4 | 5 | 6 |
+     * |---|---|---|
+     * | 7 | 8 | 9 |
+     * |---|---|---|
+     * <p>
+     * input of block 6 will translate to block in row 2, column 3
+     * return "new int[]{2, 3}"
+     *
+     * @param blockNum block number
+     * @return an array consists of row and column
+     */
+    public static int[] blockNumberToBlockRowCol(int blockNum) {
+        return new int[]{(blockNum - 1) / 3 + 1, (blockNum - 1) % 3 + 1};
+    }
+
+    /**
+     * solveCell fill in a number to the board and eliminate the possibility
+     * of other related cells on that number
+     *
+     * @param point   the point to be filled
+     * @param cellNum the number to be filled
+     */
+    public void solveCell(Point point, int cellNum) {
+        solveCell(Grid.index(point.x, point.y), cellNum);
+    }
+
+    /**
+     * Fill in a number by cell index and eliminate the possibility of its peers.
+     *
+     * @param index   the cell index
+     * @param cellNum the number to be filled
+     */
+    void solveCell(int index, int cellNum) {
+        if (digits[index] != 0) {
+            // overwriting a number cannot be undone from the journal
+            countNum(index, digits[index], -1);
+            clearJournal();
+        }
+        placedCell[placedTop] = index;
+        placedMark[placedTop++] = journalTop;
+        digits[index] = (byte) cellNum;
+        countNum(index, cellNum, 1);
+        SolverMetrics.placed();
+        setCandidates(index, 0);
+        // eliminate the possibility of other cells
+        eliminate(index);
+    }
+
+    /**
+     * Remove a possibility from a cell.
+     *
+     * @param index the cell index
+     * @param num   the number to remove
+     */
+    void removeCandidate(int index, int num) {
+        setCandidates(index, candidates[index] & ~CandidateSet.bit(num));
+    }
+
+    /**
+     * Undo a solved cell
+     * <p>
+     * If it is the last placed cell, every change made since it was placed is rolled back from the journal.
+     * Otherwise only the cell and its 20 peers are refreshed from the row, column and block counters.
+     *
+     * @param point the Point coordinate of the cell
+     */
+    public void undoSolved(Point point) {
+        int index = Grid.index(point.x, point.y);
+        int num = digits[index];
+        if (num == 0) {
+            return;
+        }
+        digits[index] = 0;
+        countNum(index, num, -1);
+
+        if (placedTop > 0 && placedCell[placedTop - 1] == index) {
+            placedTop--;
+            while (journalTop > placedMark[placedTop]) {
+                journalTop--;
+                candidates[journalCell[journalTop]] = journalMask[journalTop];
+            }
+        } else {
+            // the journal cannot go back past an older cell, start a new one
+            clearJournal();
+            candidates[index] = (short) (CandidateSet.ALL & ~unitMask(index));
+            for (int peer : Grid.PEERS[index]) {
+                if (digits[peer] == 0) {
+                    candidates[peer] = (short) (CandidateSet.ALL & ~unitMask(peer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Inspect every cell and find cells with only one possibility and assign it.
+     * at the same time eliminate the possibility of other associate cells
+     *
+     * @param num solve number of times
+     * @return false if nothing can be solved
+     */
+    public boolean solveSingleSolution(int num) {
+        int solveCount = 0;
+        boolean solvable = true;
+
+        // Continue to solve until the solveCount is bigger than num
+        // or until nothing can be solve after the whole array has been inspected.
+        while (solvable) {
+            solvable = false;
+            for (int i = 0; i < 81; i++) {
+                // if the cell exist only one possibility
+                int possibles = candidates[i];
+                if (CandidateSet.isSingle(possibles)) {
+                    solveCell(i, CandidateSet.lowest(possibles));
+                    solveCount++;
+                    solvable = true;
+                    if (solveCount >= num) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try to place a number that has only one possible cell in a unit.
+     *
+     * @param unit the unit index in Grid.UNITS
+     * @return false if fail to solve any cell
+     */
+    private boolean solveUnitSingleCandidate(int unit) {
+        int[] cellsOfUnit = Grid.UNITS[unit];
+        for (int cellNum = 1; cellNum <= 9; cellNum++) {
+            int numCount = 0;
+            int found = 0;
+            for (int i : cellsOfUnit) {
+                if (CandidateSet.contains(candidates[i], cellNum)) {
+                    numCount++;
+                    found = i;
+                }
+            }
+            if (numCount == 1) {
+                solveCell(found, cellNum);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try to solve a cell on column col
+     *
+     * @param col column number
+     * @return false if fail to solve any cell
+     */
+    public boolean solveColSingleCandidate(int col) {
+        return solveUnitSingleCandidate(9 + col - 1);
+    }
+
+    /**
+     * Solve all columns
+     *
+     * @return false if fail to solve any cell
+     */
+    public boolean solveALLColsSingleCandidate() {
+        for (int i = 1; i <= 9; i++) {
+            if (solveColSingleCandidate(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try to solve a cell on a row
+     *
+     * @param row row number
+     * @return false if fail to solve any cell
+     */
+    public boolean solveRowSingleCandidate(int row) {
+        return solveUnitSingleCandidate(row - 1);
+    }
+
+    /**
+     * Solve all rows
+     *
+     * @return false if fail to solve any cell
+     */
+    public boolean solveALLRowsSingleCandidate() {
+        for (int i = 1; i <= 9; i++) {
+            if (solveRowSingleCandidate(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solve all blocks
+     *
+     * @return false if fail to solve any cell
+     */
+    public boolean solveAllBlockSingleCandidate() {
+        for (int i = 1; i <= 9; i++) {
+            if (solveBlockSingleCandidate(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solve a blocks
+     *
+     * @param blockNum the block number
+     * @return false if fail to solve any cell
+     */
+    public boolean solveBlockSingleCandidate(int blockNum) {
+        return solveUnitSingleCandidate(18 + blockNum - 1);
+    }
+
+    /**
+     * Naked subset: if n cells of a unit have only the same n possible numbers between them,
+     * those numbers go in those cells, so they are removed from the other cells of the unit.
+     * n = 2 is a naked pair, 3 a naked triple and 4 a naked quad.
+     *
+     * @param size the size of the subset (2~4)
+     * @return false if no possibility can be removed
+     */
+    public boolean solveNakedSubsets(int size) {
+        for (int unit = 0; unit < 27; unit++) {
+            if (solveNakedSubset(unit, size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look for a naked subset in a unit, the subsets are tried as masks of positions in the unit.
+     *
+     * @param unit the unit index in Grid.UNITS
+     * @param size the size of the subset
+     * @return false if no possibility can be removed
+     */
+    private boolean solveNakedSubset(int unit, int size) {
+        int[] cells = Grid.UNITS[unit];
+        // positions of the cells that can be part of a subset
+        int eligible = 0;
+        int emptyCount = 0;
+        for (int p = 0; p < 9; p++) {
+            int count = CandidateSet.count(candidates[cells[p]]);
+            if (count > 0) {
+                emptyCount++;
+            }
+            if (count >= 2 && count <= size) {
+                eligible |= 1 << p;
+            }
+        }
+        // a subset of all empty cells removes nothing
+        if (emptyCount <= size || Integer.bitCount(eligible) < size) {
+            return false;
+        }
+        for (int subset : SUBSETS[size]) {
+            if ((subset & ~eligible) != 0) {
+                continue;
+            }
+            int union = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                union |= candidates[cells[Integer.numberOfTrailingZeros(rest)]];
+            }
+            if (CandidateSet.count(union) != size) {
+                continue;
+            }
+            boolean removed = false;
+            for (int p = 0; p < 9; p++) {
+                int i = cells[p];
+                if ((subset & (1 << p)) == 0 && (candidates[i] & union) != 0) {
+                    setCandidates(i, candidates[i] & ~union);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hidden subset: if n numbers of a unit can only go in the same n cells,
+     * those cells hold those numbers, so every other possibility is removed from them.
+     * n = 2 is a hidden pair, 3 a hidden triple and 4 a hidden quad.
+     *
+     * @param size the size of the subset (2~4)
+     * @return false if no possibility can be removed
+     */
+    public boolean solveHiddenSubsets(int size) {
+        for (int unit = 0; unit < 27; unit++) {
+            if (solveHiddenSubset(unit, size)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look for a hidden subset in a unit. Every number gets a mask of its possible positions
+     * in the unit, and the subsets are tried as CandidateSet masks of numbers.
+     *
+     * @param unit the unit index in Grid.UNITS
+     * @param size the size of the subset
+     * @return false if no possibility can be removed
+     */
+    private boolean solveHiddenSubset(int unit, int size) {
+        int[] cells = Grid.UNITS[unit];
+        for (int num = 0; num < 9; num++) {
+            numPositions[num] = 0;
+        }
+        for (int p = 0; p < 9; p++) {
+            for (int rest = candidates[cells[p]]; rest != 0; rest &= rest - 1) {
+                numPositions[Integer.numberOfTrailingZeros(rest)] |= 1 << p;
+            }
+        }
+        // numbers that can be part of a subset
+        int eligible = 0;
+        int openCount = 0;
+        for (int num = 0; num < 9; num++) {
+            int count = Integer.bitCount(numPositions[num]);
+            if (count > 0) {
+                openCount++;
+            }
+            if (count >= 2 && count <= size) {
+                eligible |= 1 << num;
+            }
+        }
+        if (openCount <= size || Integer.bitCount(eligible) < size) {
+            return false;
+        }
+        for (int subset : SUBSETS[size]) {
+            if ((subset & ~eligible) != 0) {
+                continue;
+            }
+            int union = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                union |= numPositions[Integer.numberOfTrailingZeros(rest)];
             }
-        } else if (rule == RULE.COL) {
-            for (int i = 1; i <= 9; i++) {
-                cells.get(new Point(col, i)).removePossibility(num);
-            }
-        } else if (rule == RULE.BLOCK) {
-            int br = ((row - 1) / 3) + 1;
-            int bc = ((col - 1) / 3) + 1;
-            for (int j = (br - 1) * 3 + 1; j < (br * 3) + 1; j++) {
-                for (int i = (bc - 1) * 3 + 1; i < (bc * 3) + 1; i++) {
-                    cells.get(new Point(i, j)).removePossibility(num);
+            if (Integer.bitCount(union) != size) {
+                continue;
+            }
+            boolean removed = false;
+            for (int rest = union; rest != 0; rest &= rest - 1) {
+                int i = cells[Integer.numberOfTrailingZeros(rest)];
+                if ((candidates[i] & ~subset) != 0) {
+                    setCandidates(i, candidates[i] & subset);
+                    removed = true;
                 }
             }
+            if (removed) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
-     * Eliminate board-wise.
-     * It is used usually when a new board is created
-     */
-    private void eliminate() {
-        Cell cell;
-        for (int j = 1; j <= 9; j++) {
-            for (int i = 1; i <= 9; i++) {
-                cell = cells.get(new Point(i, j));
-                if (cell.getNum() != 0) {
-                    cell.possibleNumbers = new ArrayList<>();
-                    eliminate(new Point(i, j));
+     * Pointing pair (or triple): if the possible cells of a number in a block are all in one row
+     * or column, the number is removed from the rest of that row or column.
+     *
+     * @return false if no possibility can be removed
+     */
+    public boolean solvePointingPairs() {
+        for (int unit = 18; unit < 27; unit++) {
+            for (int num = 1; num <= 9; num++) {
+                if (solveLockedCandidates(unit, num)) {
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     /**
-     * Translate from "block number" to the block row and column number.
-     * <p>
-     * block number is represented as
-     * |---|---|---|
-     * | 1 | 2 | 3 |
-     * |---|---|---|
-     * | 4 | 5 | 6 |
-     * |---|---|---|
-     * | 7 | 8 | 9 |
-     * |---|---|---|
-     * <p>
-     * input of block 6 will translate to block in row 2, column 3
-     * return "new int[]{2, 3}"
+     * Box-line reduction: if the possible cells of a number in a row or column are all in one block,
+     * the number is removed from the rest of that block.
      *
-     * @param blockNum block number
-     * @return an array consists of row and column
+     * @return false if no possibility can be removed
      */
-    public static int[] blockNumberToBlockRowCol(int blockNum) {
-        return new int[]{(blockNum - 1) / 3 + 1, (blockNum - 1) % 3 + 1};
+    public boolean solveBoxLineReduction() {
+        for (int unit = 0; unit < 18; unit++) {
+            for (int num = 1; num <= 9; num++) {
+                if (solveLockedCandidates(unit, num)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * solveCell fill in a number to the board and eliminate the possibility
-     * of other related cells on that number
+     * Locked candidates: if the possible cells of a number in a unit all lie in one other unit,
+     * the number goes in the cells they share, so it is removed from the rest of the other unit.
+     * A block is checked against rows and columns, a row or column against blocks.
      *
-     * @param point   the point to be filled
-     * @param cellNum the number to be filled
+     * @param unit the unit index in Grid.UNITS
+     * @param num  the number
+     * @return false if no possibility can be removed
      */
-    public void solveCell(Point point, int cellNum) {
-        Cell cell = cells.get(point);
-        cell.setNum(cellNum);
-
-        while (!cell.possibleNumbers.isEmpty()) {
-            cell.possibleNumbers.remove(0);
+    private boolean solveLockedCandidates(int unit, int num) {
+        int bit = CandidateSet.bit(num);
+        // rows, columns and blocks of the possible cells, one bit each
+        int rows = 0;
+        int cols = 0;
+        int blocks = 0;
+        int count = 0;
+        for (int i : Grid.UNITS[unit]) {
+            if ((candidates[i] & bit) != 0) {
+                rows |= 1 << Grid.ROW[i];
+                cols |= 1 << Grid.COL[i];
+                blocks |= 1 << Grid.BLOCK[i];
+                count++;
+            }
         }
-        // eliminate the possibility of other cells
-        eliminate(point);
+        if (count < 2) {
+            return false;
+        }
+        int other;
+        if (unit >= 18) {
+            if (Integer.bitCount(rows) == 1) {
+                other = Integer.numberOfTrailingZeros(rows);
+            } else if (Integer.bitCount(cols) == 1) {
+                other = 9 + Integer.numberOfTrailingZeros(cols);
+            } else {
+                return false;
+            }
+        } else if (Integer.bitCount(blocks) == 1) {
+            other = 18 + Integer.numberOfTrailingZeros(blocks);
+        } else {
+            return false;
+        }
+        boolean removed = false;
+        for (int i : Grid.UNITS[other]) {
+            if ((candidates[i] & bit) != 0 && !isInUnit(i, unit)) {
+                setCandidates(i, candidates[i] & ~bit);
+                removed = true;
+            }
+        }
+        return removed;
     }
 
     /**
-     * Undo a solved cell
-     *
-     * @param point the Point coordinate of the cell
+     * @param index the cell index
+     * @param unit  the unit index in Grid.UNITS
+     * @return true if the cell is in the unit
      */
-    public void undoSolved(Point point) {
-        Cell cell = cells.get(point);
-        cell.setNum(0);
-
-        // refresh all cells possibility number
-        for (int col = 1; col <= 9; col++) {
-            for (int row = 1; row <= 9; row++) {
-                cells.get(new Point(col, row)).resetPossibility();
-            }
+    private static boolean isInUnit(int index, int unit) {
+        if (unit < 9) {
+            return Grid.ROW[index] == unit;
+        } else if (unit < 18) {
+            return Grid.COL[index] == unit - 9;
         }
-        eliminate();
+        return Grid.BLOCK[index] == unit - 18;
     }
 
     /**
-     * Inspect every cell and find cells with only one possibility and assign it.
-     * at the same time eliminate the possibility of other associate cells
-     *
-     * @param num solve number of times
-     * @return false if nothing can be solved
+     * @return the bitboards of every number, loaded with the current possibilities
      */
-    public boolean solveSingleSolution(int num) {
-        int solveCount = 0;
-        boolean solvable = true;
-
-        // Continue to solve until the solveCount is bigger than num
-        // or until nothing can be solve after the whole array has been inspected.
-        while (solvable) {
-            solvable = false;
-            for (int j = 1; j <= 9; j++) {
-                for (int i = 1; i <= 9; i++) {
-                    // if the cell exist only one possibility
-                    if (cells.get(new Point(i, j)).possibleNumbers.size() == 1) {
-                        solveCell(new Point(i, j), cells.get(new Point(i, j)).possibleNumbers.get(0));
-                        solveCount++;
-                        solvable = true;
-                        if (solveCount >= num) {
-                            return true;
-                        }
-                    }
-                }
-            }
+    private DigitBoards loadDigitBoards() {
+        if (digitBoards == null) {
+            digitBoards = new DigitBoards();
         }
-        return false;
+        digitBoards.load(candidates);
+        return digitBoards;
     }
 
     /**
-     * Try to solve a cell on column col
+     * Remove a number from the cells of a bitboard.
      *
-     * @param col column number
-     * @return false if fail to solve any cell
+     * @param num the number
+     * @param lo  low half of the bitboard
+     * @param hi  high half of the bitboard
+     * @return false if no possibility is removed
      */
-    public boolean solveColSingleCandidate(int col) {
-        int foundNumRow = 0;
-        int numCount;
-        for (int cellNum = 1; cellNum <= 9; cellNum++) {
-            numCount = 0;
-            for (int row = 1; row <= 9; row++) {
-                if (cells.get(new Point(col, row)).doesPossibilityExist(cellNum)) {
-                    numCount++;
-                    foundNumRow = row;
-                }
+    private boolean removeFromCells(int num, long lo, long hi) {
+        int bit = CandidateSet.bit(num);
+        boolean removed = false;
+        for (; lo != 0; lo &= lo - 1) {
+            int i = Long.numberOfTrailingZeros(lo);
+            if ((candidates[i] & bit) != 0) {
+                setCandidates(i, candidates[i] & ~bit);
+                removed = true;
             }
-            if (numCount == 1) {
-                solveCell(new Point(col, foundNumRow), cellNum);
-                return true;
+        }
+        for (; hi != 0; hi &= hi - 1) {
+            int i = 64 + Long.numberOfTrailingZeros(hi);
+            if ((candidates[i] & bit) != 0) {
+                setCandidates(i, candidates[i] & ~bit);
+                removed = true;
             }
         }
-        return false;
+        return removed;
     }
 
     /**
-     * Solve all columns
+     * Fish: if a number is possible in n rows only within the same n columns, it goes in
+     * those rows at the crossings, so it is removed from the rest of the n columns (and the same with
+     * rows and columns swapped). n = 2 is an X-Wing, 3 a Swordfish and 4 a Jellyfish.
      *
-     * @return false if fail to solve any cell
+     * @param size the size of the fish (2~4)
+     * @return false if no possibility can be removed
      */
-    public boolean solveALLColsSingleCandidate() {
-        for (int i = 1; i <= 9; i++) {
-            if (solveColSingleCandidate(i)) {
+    public boolean solveFish(int size) {
+        DigitBoards boards = loadDigitBoards();
+        for (int num = 1; num <= 9; num++) {
+            if (solveFish(boards, num, size, 0) || solveFish(boards, num, size, 9)) {
                 return true;
             }
         }
@@ -352,24 +1061,54 @@ public class Board implements Cloneable {
     }
 
     /**
-     * Try to solve a cell on a row
+     * Look for a fish of a number. Position k of a row is column k and position k of a column is row k,
+     * so the positions of the base lines are the cover lines.
      *
-     * @param row row number
-     * @return false if fail to solve any cell
+     * @param boards the bitboards
+     * @param num    the number
+     * @param size   the size of the fish
+     * @param base   0 for rows as base lines and columns as cover lines, 9 for the opposite
+     * @return false if no possibility can be removed
      */
-    public boolean solveRowSingleCandidate(int row) {
-        int foundNumCol = 0;
-        int numCount;
-        for (int cellNum = 1; cellNum <= 9; cellNum++) {
-            numCount = 0;
-            for (int col = 1; col <= 9; col++) {
-                if (cells.get(new Point(col, row)).doesPossibilityExist(cellNum)) {
-                    numCount++;
-                    foundNumCol = col;
-                }
+    private boolean solveFish(DigitBoards boards, int num, int size, int base) {
+        int cover = 9 - base;
+        // base lines that can be part of a fish
+        int eligible = 0;
+        for (int line = 0; line < 9; line++) {
+            numPositions[line] = boards.positions(num, base + line);
+            int count = Integer.bitCount(numPositions[line]);
+            if (count >= 2 && count <= size) {
+                eligible |= 1 << line;
             }
-            if (numCount == 1) {
-                solveCell(new Point(foundNumCol, row), cellNum);
+        }
+        if (Integer.bitCount(eligible) < size) {
+            return false;
+        }
+        for (int subset : SUBSETS[size]) {
+            if ((subset & ~eligible) != 0) {
+                continue;
+            }
+            int covers = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                covers |= numPositions[Integer.numberOfTrailingZeros(rest)];
+            }
+            if (Integer.bitCount(covers) != size) {
+                continue;
+            }
+            long baseLo = 0;
+            long baseHi = 0;
+            for (int rest = subset; rest != 0; rest &= rest - 1) {
+                baseLo |= DigitBoards.UNIT_LO[base + Integer.numberOfTrailingZeros(rest)];
+                baseHi |= DigitBoards.UNIT_HI[base + Integer.numberOfTrailingZeros(rest)];
+            }
+            long coverLo = 0;
+            long coverHi = 0;
+            for (int rest = covers; rest != 0; rest &= rest - 1) {
+                coverLo |= DigitBoards.UNIT_LO[cover + Integer.numberOfTrailingZeros(rest)];
+                coverHi |= DigitBoards.UNIT_HI[cover + Integer.numberOfTrailingZeros(rest)];
+            }
+            if (removeFromCells(num, boards.lo[num - 1] & coverLo & ~baseLo,
+                    boards.hi[num - 1] & coverHi & ~baseHi)) {
                 return true;
             }
         }
@@ -377,27 +1116,50 @@ public class Board implements Cloneable {
     }
 
     /**
-     * Solve all rows
+     * XY-Wing: a pivot cell with possibilities {x, y} sees a cell with {x, z} and a cell with {y, z}.
+     * Whatever the pivot is, one of the two cells is z, so z is removed from the cells seeing both.
      *
-     * @return false if fail to solve any cell
+     * @return false if no possibility can be removed
      */
-    public boolean solveALLRowsSingleCandidate() {
-        for (int i = 1; i <= 9; i++) {
-            if (solveRowSingleCandidate(i)) {
-                return true;
+    public boolean solveXYWing() {
+        DigitBoards boards = loadDigitBoards();
+        for (int pivot = 0; pivot < 81; pivot++) {
+            int xy = candidates[pivot];
+            if (CandidateSet.count(xy) != 2) {
+                continue;
+            }
+            for (int a : Grid.PEERS[pivot]) {
+                int xz = candidates[a];
+                if (CandidateSet.count(xz) != 2 || CandidateSet.count(xz & xy) != 1) {
+                    continue;
+                }
+                int z = xz & ~xy;
+                int yz = (xy & ~xz) | z;
+                int num = CandidateSet.lowest(z);
+                for (int b : Grid.PEERS[pivot]) {
+                    if (candidates[b] == yz
+                            && removeFromCells(num, boards.lo[num - 1] & DigitBoards.PEER_LO[a] & DigitBoards.PEER_LO[b],
+                            boards.hi[num - 1] & DigitBoards.PEER_HI[a] & DigitBoards.PEER_HI[b])) {
+                        return true;
+                    }
+                }
             }
         }
         return false;
     }
 
     /**
-     * Solve all blocks
+     * Simple coloring: the cells of a number linked by conjugate pairs (the only two possible cells of
+     * the number in a unit) are colored in two alternating colors, and exactly one color holds the number.
+     * If two cells of one color see each other, that color is wrong and the number is removed from its cells
+     * (color wrap). Otherwise the number is removed from the cells that see both colors (color trap).
      *
-     * @return false if fail to solve any cell
+     * @return false if no possibility can be removed
      */
-    public boolean solveAllBlockSingleCandidate() {
-        for (int i = 1; i <= 9; i++) {
-            if (solveBlockSingleCandidate(i)) {
+    public boolean solveSimpleColoring() {
+        DigitBoards boards = loadDigitBoards();
+        for (int num = 1; num <= 9; num++) {
+            if (solveSimpleColoring(boards, num)) {
                 return true;
             }
         }
@@ -405,36 +1167,141 @@ public class Board implements Cloneable {
     }
 
     /**
-     * Solve a blocks
+     * Color every chain of conjugate pairs of a number and check it.
      *
-     * @param blockNum the block number
-     * @return false if fail to solve any cell
+     * @param boards the bitboards
+     * @param num    the number
+     * @return false if no possibility can be removed
      */
-    public boolean solveBlockSingleCandidate(int blockNum) {
-        int[] blockPo = Board.blockNumberToBlockRowCol(blockNum);
-        int foundNumCol = 0;
-        int foundNumRow = 0;
-
-        int numCount;
-        for (int cellNum = 1; cellNum <= 9; cellNum++) {
-            numCount = 0;
-            for (int row = (blockPo[0] - 1) * 3 + 1; row < (blockPo[0] * 3) + 1; row++) {
-                for (int col = (blockPo[1] - 1) * 3 + 1; col < (blockPo[1] * 3) + 1; col++) {
-                    if (cells.get(new Point(col, row)).doesPossibilityExist(cellNum)) {
-                        numCount++;
-                        foundNumCol = col;
-                        foundNumRow = row;
+    private boolean solveSimpleColoring(DigitBoards boards, int num) {
+        long allLo = boards.lo[num - 1];
+        long allHi = boards.hi[num - 1];
+        // cells colored by an earlier chain
+        long doneLo = 0;
+        long doneHi = 0;
+        for (int start = 0; start < 81; start++) {
+            if (!boards.has(num, start) || (start < 64 ? (doneLo & (1L << start)) : (doneHi & (1L << (start - 64)))) != 0) {
+                continue;
+            }
+            // the two colors of the chain, start has color 0
+            colors[0] = 0;
+            colors[1] = 0;
+            colors[2] = 0;
+            colors[3] = 0;
+            int top = 0;
+            chain[top++] = start;
+            setBit(colors, 0, start);
+            while (top > 0) {
+                int i = chain[--top];
+                int c = hasBit(colors, 0, i) ? 0 : 2;
+                for (int u = 0; u < 3; u++) {
+                    int unit = u == 0 ? Grid.ROW[i] : u == 1 ? 9 + Grid.COL[i] : 18 + Grid.BLOCK[i];
+                    long l = allLo & DigitBoards.UNIT_LO[unit];
+                    long h = allHi & DigitBoards.UNIT_HI[unit];
+                    if (DigitBoards.count(l, h) != 2) {
+                        continue;
+                    }
+                    // clear cell i, the cell left is its conjugate
+                    if (i < 64) {
+                        l &= ~(1L << i);
+                    } else {
+                        h &= ~(1L << (i - 64));
+                    }
+                    int other = DigitBoards.first(l, h);
+                    if (!hasBit(colors, 0, other) && !hasBit(colors, 2, other)) {
+                        setBit(colors, 2 - c, other);
+                        chain[top++] = other;
                     }
                 }
             }
-            if (numCount == 1) {
-                solveCell(new Point(foundNumCol, foundNumRow), cellNum);
+            doneLo |= colors[0] | colors[2];
+            doneHi |= colors[1] | colors[3];
+            if ((colors[2] | colors[3]) == 0) {
+                continue;
+            }
+            // color wrap
+            for (int c = 0; c <= 2; c += 2) {
+                for (int k = 0; k < 81; k++) {
+                    if (hasBit(colors, c, k)
+                            && ((DigitBoards.PEER_LO[k] & colors[c]) | (DigitBoards.PEER_HI[k] & colors[c + 1])) != 0) {
+                        return removeFromCells(num, colors[c], colors[c + 1]);
+                    }
+                }
+            }
+            // color trap
+            long trapLo = 0;
+            long trapHi = 0;
+            for (int k = 0; k < 81; k++) {
+                if (boards.has(num, k) && !hasBit(colors, 0, k) && !hasBit(colors, 2, k)
+                        && ((DigitBoards.PEER_LO[k] & colors[0]) | (DigitBoards.PEER_HI[k] & colors[1])) != 0
+                        && ((DigitBoards.PEER_LO[k] & colors[2]) | (DigitBoards.PEER_HI[k] & colors[3])) != 0) {
+                    if (k < 64) {
+                        trapLo |= 1L << k;
+                    } else {
+                        trapHi |= 1L << (k - 64);
+                    }
+                }
+            }
+            if (removeFromCells(num, trapLo, trapHi)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * @param board bitboards as {lo, hi} pairs
+     * @param at    the position of the lo half of the pair
+     * @param index the cell index
+     * @return true if the cell is in the bitboard
+     */
+    private static boolean hasBit(long[] board, int at, int index) {
+        return index < 64 ? (board[at] & (1L << index)) != 0 : (board[at + 1] & (1L << (index - 64))) != 0;
+    }
+
+    /**
+     * Add a cell to a bitboard, see hasBit().
+     */
+    private static void setBit(long[] board, int at, int index) {
+        if (index < 64) {
+            board[at] |= 1L << index;
+        } else {
+            board[at + 1] |= 1L << (index - 64);
+        }
+    }
+
+    /**
+     * Count the solutions of the board as it is now with a DlxSolver, stopping at limit.
+     * Unlike makeAssumption(), which keeps the first assumption that works, it tells a puzzle
+     * with many solutions from a unique one: countSolutions(2) == 1 means the solution is unique.
+     *
+     * @param limit the most solutions to count (1 or more)
+     * @return how many solutions the board has, at most limit, 0 if it breaks the rules
+     */
+    public int countSolutions(int limit) {
+        return COUNTING_SOLVERS.get().countSolutions(digits, limit);
+    }
+
+    /**
+     * Solve all the remaining cells at once with a Solver engine.
+     * The board is not changed if the engine cannot find a solution.
+     *
+     * @param solver the engine, i.e. DlxSolver
+     * @return false if not solvable
+     */
+    public boolean solveWith(Solver solver) {
+        byte[] grid = digits.clone();
+        if (!solver.solve(grid)) {
+            return false;
+        }
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] == 0) {
+                solveCell(i, grid[i]);
+            }
+        }
+        return true;
+    }
+
     /**
      * Check if the puzzle is solved.
      *
@@ -442,11 +1309,9 @@ public class Board implements Cloneable {
      */
     public boolean isSolved() {
         // check if all number is not zero
-        for (int j = 1; j <= 9; j++) {
-            for (int i = 1; i <= 9; i++) {
-                if (cells.get(new Point(i, j)).getNum() == 0) {
-                    return false;
-                }
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] == 0) {
+                return false;
             }
         }
         // check if all rows, columns, and blocks
@@ -458,6 +1323,30 @@ public class Board implements Cloneable {
         return true;
     }
 
+    /**
+     * Count the empty cells, from the counter kept by solveCell() and undoSolved().
+     *
+     * @return how many cells have no number yet
+     */
+    public int getEmptyCount() {
+        return 81 - filledCount;
+    }
+
+    /**
+     * Check if there exist an empty cell that has no possibility left,
+     * meaning that the board cannot be solved any more.
+     *
+     * @return true if a cell has no possibility
+     */
+    public boolean hasDeadCell() {
+        for (int i = 0; i < 81; i++) {
+            if (digits[i] == 0 && candidates[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Get a hash map object that contain all places where the num can be placed
      *
@@ -466,11 +1355,9 @@ public class Board implements Cloneable {
      */
     public HashMap<Point, Cell> getPossibilityMap(int num) {
         HashMap<Point, Cell> newCells = new HashMap<>();
-        for (int y = 1; y <= 9; y++) {
-            for (int x = 1; x <= 9; x++) {
-                if (cells.get(new Point(x, y)).doesPossibilityExist(num)) {
-                    newCells.put(new Point(x, y), new Cell(num));
-                }
+        for (int i = 0; i < 81; i++) {
+            if (CandidateSet.contains(candidates[i], num)) {
+                newCells.put(new Point(Grid.COL[i] + 1, Grid.ROW[i] + 1), new Cell(num));
             }
         }
         return newCells;
@@ -482,28 +1369,39 @@ public class Board implements Cloneable {
      * @param num number to look at
      */
     public void printPossibilityMap(int num) {
+        String map = possibilityMapString(num);
+        if (!map.isEmpty()) {
+            System.out.print(map);
+        }
+    }
+
+    /**
+     * Draw all possible places where specified number can be placed, like printPossibilityMap().
+     *
+     * @param num number to look at
+     * @return the drawing, empty if the number cannot be placed anywhere
+     */
+    public String possibilityMapString(int num) {
+        byte[] nums = new byte[81];
         boolean isAllZero = true;
-        for (int j = 1; j <= 9; j++) {
-            for (int i = 1; i <= 9; i++) {
-                if (cells.get(new Point(i, j)).doesPossibilityExist(num)) {
-                    isAllZero = false;
-                }
+        for (int i = 0; i < 81; i++) {
+            if (CandidateSet.contains(candidates[i], num)) {
+                nums[i] = (byte) num;
+                isAllZero = false;
             }
         }
         // don't show anything if the map is all zeros
         if (isAllZero) {
-            return;
+            return "";
         }
-
-        Map<Point, Cell> newCells = getPossibilityMap(num);
-        printBoardOnConsole(newCells);
+        return toGridString(nums);
     }
 
     /**
-     * Print a row of dash line.
+     * Show the current board in console.
      */
-    private void printRowDashLine() {
-        System.out.println("|-----------------------|");
+    public void printBoardOnConsole() {
+        System.out.print(toGridString(digits));
     }
 
     /**
@@ -512,135 +1410,215 @@ public class Board implements Cloneable {
      * @param cells the Map<Point, Cell> object containing cells of a board
      */
     public void printBoardOnConsole(Map<Point, Cell> cells) {
-        System.out.println("");
-        printRowDashLine();
+        byte[] nums = new byte[81];
+        for (int i = 0; i < 81; i++) {
+            Cell cell = cells.get(new Point(Grid.COL[i] + 1, Grid.ROW[i] + 1));
+            if (cell != null) {
+                nums[i] = (byte) cell.getNum();
+            }
+        }
+        System.out.print(toGridString(nums));
+    }
+
+    /**
+     * Draw the current board as printBoardOnConsole() shows it, i.e. for Log.dump().
+     *
+     * @return the drawing
+     */
+    public String toGridString() {
+        return toGridString(digits);
+    }
+
+    /**
+     * Draw the original puzzle of the board.
+     *
+     * @return the drawing
+     */
+    public String toOriginalGridString() {
+        return toGridString(originalDigits);
+    }
+
+    /**
+     * Draw a board of numbers.
+     * |-----------------------|
+     * | 5 3   |   7   |       |
+     * ...
+     *
+     * @param nums number of every cell
+     * @return the drawing, one line for every row and dash line
+     */
+    private static String toGridString(byte[] nums) {
+        StringBuilder sb = new StringBuilder(13 * 26 + 2);
+        String dashLine = "|-----------------------|\n";
+        sb.append('\n').append(dashLine);
         for (int y = 1; y <= 9; y++) {
-            System.out.printf("| ");
+            sb.append("| ");
             for (int x = 1; x <= 9; x++) {
-                int printInt;
-                printInt = cells.get(new Point(x, y)).getNum();
-                if (printInt != 0) {
-                    System.out.printf(printInt + " ");
+                int num = nums[Grid.index(x, y)];
+                if (num != 0) {
+                    sb.append((char) ('0' + num)).append(' ');
                 } else {
-                    System.out.printf("  ");
+                    sb.append("  ");
                 }
                 if (x == 3 || x == 6) {
-                    System.out.printf("| ");
+                    sb.append("| ");
                 }
             }
-            System.out.printf("| ");
-            System.out.println("");
+            sb.append("| \n");
             if (y == 3 || y == 6) {
-                printRowDashLine();
+                sb.append(dashLine);
             }
-
         }
-        printRowDashLine();
-        System.out.println("");
+        sb.append(dashLine).append('\n');
+        return sb.toString();
     }
 
     /**
      * Actually make assumptions on a point
+     * <p>
+     * The assumption is tried on the board itself: the journal mark is kept, the board is solved as far
+     * as the single candidates go, and rollback() then undoes every change back to the mark, so no board
+     * is cloned.
      *
      * @param board  the board to solve
-     * @param points points that needed to make assumptions
+     * @param first  the cell index of the first point to assume
+     * @param second the cell index of the point to assume next, -1 if there is none
      * @param num    number to fill in
      * @return false if making assumption cannot solve the board
-     * @throws CloneNotSupportedException
      */
-    public static boolean makeAssumption(Board board, List<Point> points, int num) throws CloneNotSupportedException {
-        Board cloneBoard = board.clone();
+    public static boolean makeAssumption(Board board, int first, int second, int num) {
+        SolverMetrics.guessed();
+        int journalMark = board.journalTop;
+        int placedMark = board.placedTop;
 
         // assume the first one is true
-        cloneBoard.solveCell(points.get(0), num);
+        board.solveCell(first, num);
         // continue to solve the puzzle
-        while (cloneBoard.solveSingleSolution(1) || cloneBoard.solveALLRowsSingleCandidate()) {
-            cloneBoard.solveALLColsSingleCandidate();
+        while (board.solveSingleSolution(1) || board.solveALLRowsSingleCandidate()) {
+            board.solveALLColsSingleCandidate();
         }
+        boolean solved = board.isSolved();
+        boolean dead = !solved && board.hasDeadCell();
+        board.rollback(journalMark, placedMark);
         // check if solved
-        if (cloneBoard.isSolved()) {
+        if (solved) {
             // solve the real board
-            board.solveCell(points.get(0), num);
+            board.solveCell(first, num);
             return true;
         } else {
             // check if there exist any cell with no possibility but no number assigned
-            for (int y = 1; y <= 9; y++) {
-                for (int x = 1; x <= 9; x++) {
-                    Cell cell = cloneBoard.cells.get(new Point(x, y));
-                    // if the assumption is wrong, delete that assumption
-                    if (cell.getNum() == 0 && cell.possibleNumbers.size() == 0 && points.size() != 1) {
-                        board.cells.get(points.get(0)).removePossibility(num);
-                        board.eliminate();
-                        return true;
-                    }
-                }
+            // if the assumption is wrong, delete that assumption
+            if (dead && second >= 0) {
+                SolverMetrics.backtracked();
+                board.removeCandidate(first, num);
+                return true;
             }
             // if all legal but still not solved
             // make the second assumption
-            if (points.size() > 1) {
-                points.remove(0);
-                return makeAssumption(board, points, num);
+            if (second >= 0) {
+                SolverMetrics.backtracked();
+                return makeAssumption(board, second, -1, num);
             }
         }
         return false;
     }
 
+    /**
+     * Undo every placement and every change of possibilities made since the journal had the given sizes.
+     * Only numbers placed in empty cells can be undone: overwriting a number clears the journal.
+     *
+     * @param journalMark the journal size to go back to
+     * @param placedMark  the placed cells size to go back to
+     */
+    private void rollback(int journalMark, int placedMark) {
+        while (placedTop > placedMark) {
+            int index = placedCell[--placedTop];
+            countNum(index, digits[index], -1);
+            digits[index] = 0;
+        }
+        while (journalTop > journalMark) {
+            journalTop--;
+            candidates[journalCell[journalTop]] = journalMask[journalTop];
+        }
+    }
+
     /**
      * Solve a solution by making assumption
+     * <p>
+     * It looks for a number with exactly two possible cells in a row, a column or a row of a block,
+     * and assumes the number in the first of them (see makeAssumption()).
      *
      * @param board the board intended to solve
      * @return false if not solvable
-     * @throws CloneNotSupportedException
      */
-    public static boolean solveByAssumption(Board board) throws CloneNotSupportedException {
-        HashMap<Point, Cell> possibilityMap;
-        List<Point> points;
-        Cell cell;
+    public static boolean solveByAssumption(Board board) {
+        short[] candidates = board.candidates;
 
         for (int num = 1; num <= 9; num++) {
-            possibilityMap = board.getPossibilityMap(num);
             // scan rows
             for (int row = 1; row <= 9; row++) {
-                points = new ArrayList<>();
+                int count = 0;
+                int first = -1;
+                int second = -1;
                 for (int col = 1; col <= 9; col++) {
-                    cell = possibilityMap.get(new Point(col, row));
-                    if (cell != null && cell.getNum() == num) {
-                        points.add(new Point(col, row));
+                    int index = Grid.index(col, row);
+                    if (CandidateSet.contains(candidates[index], num)) {
+                        count++;
+                        if (count == 1) {
+                            first = index;
+                        } else if (count == 2) {
+                            second = index;
+                        }
                     }
                 }
-                if (points.size() == 2) {
-                    return makeAssumption(board, points, num);
+                if (count == 2) {
+                    return makeAssumption(board, first, second, num);
                 }
             }
 
             // scan cols
             for (int col = 1; col <= 9; col++) {
-                points = new ArrayList<>();
+                int count = 0;
+                int first = -1;
+                int second = -1;
                 for (int row = 1; row <= 9; row++) {
-                    cell = possibilityMap.get(new Point(col, row));
-                    if (cell != null && cell.getNum() == num) {
-                        points.add(new Point(col, row));
+                    int index = Grid.index(col, row);
+                    if (CandidateSet.contains(candidates[index], num)) {
+                        count++;
+                        if (count == 1) {
+                            first = index;
+                        } else if (count == 2) {
+                            second = index;
+                        }
                     }
                 }
-                if (points.size() == 2) {
-                    return makeAssumption(board, points, num);
+                if (count == 2) {
+                    return makeAssumption(board, first, second, num);
                 }
             }
 
             // scan blocks
             for (int blockNum = 1; blockNum <= 9; blockNum++) {
-                int[] blockPo = blockNumberToBlockRowCol(blockNum);
-
-                for (int row = (blockPo[0] - 1) * 3 + 1; row < (blockPo[0] * 3) + 1; row++) {
-                    points = new ArrayList<>();
-                    for (int col = (blockPo[1] - 1) * 3 + 1; col < (blockPo[1] * 3) + 1; col++) {
-                        cell = possibilityMap.get(new Point(col, row));
-                        if (cell != null && cell.getNum() == num) {
-                            points.add(new Point(col, row));
+                int blockRow = (blockNum - 1) / 3 + 1;
+                int blockCol = (blockNum - 1) % 3 + 1;
+
+                for (int row = (blockRow - 1) * 3 + 1; row < (blockRow * 3) + 1; row++) {
+                    int count = 0;
+                    int first = -1;
+                    int second = -1;
+                    for (int col = (blockCol - 1) * 3 + 1; col < (blockCol * 3) + 1; col++) {
+                        int index = Grid.index(col, row);
+                        if (CandidateSet.contains(candidates[index], num)) {
+                            count++;
+                            if (count == 1) {
+                                first = index;
+                            } else if (count == 2) {
+                                second = index;
+                            }
                         }
                     }
-                    if (points.size() == 2) {
-                        return makeAssumption(board, points, num);
+                    if (count == 2) {
+                        return makeAssumption(board, first, second, num);
                     }
                 }
             }
@@ -656,20 +1634,32 @@ public class Board implements Cloneable {
      */
     @Override
     public Board clone() {
+        SolverMetrics.cloned();
         Board clonedBoard = new Board();
-        Point point;
-
-        for (int row = 1; row <= 9; row++) {
-            for (int col = 1; col <= 9; col++) {
-                point = new Point(col, row);
-                clonedBoard.cells.get(point).setNum(cells.get(point).getNum());
-            }
-        }
-        clonedBoard.eliminate();
-
+        clonedBoard.copyFrom(this);
         return clonedBoard;
     }
 
+    /**
+     * Overwrite this board with the state of another board without allocating.
+     *
+     * @param other the board to copy from
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.digits, 0, digits, 0, 81);
+        System.arraycopy(other.originalDigits, 0, originalDigits, 0, 81);
+        System.arraycopy(other.candidates, 0, candidates, 0, 81);
+        System.arraycopy(other.rowMask, 0, rowMask, 0, 9);
+        System.arraycopy(other.colMask, 0, colMask, 0, 9);
+        System.arraycopy(other.blockMask, 0, blockMask, 0, 9);
+        System.arraycopy(other.unitCount, 0, unitCount, 0, unitCount.length);
+        System.arraycopy(other.unitConflicts, 0, unitConflicts, 0, unitConflicts.length);
+        filledCount = other.filledCount;
+        sidecar = other.sidecar;
+        sidecarNum = other.sidecarNum;
+        clearJournal();
+    }
+
     /**
      * for testing board solver on console
      *
@@ -677,9 +1667,39 @@ public class Board implements Cloneable {
      */
     public static void main(String[] args) {
         Board board;
+        // with an engine name, i.e. "dlx", solve every puzzle of all levels with that engine
+        if (args.length > 0) {
+            Solver solver = Solver.forName(args[0]);
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                PuzzleSource puzzles;
+                try {
+                    puzzles = PuzzleLibrary.getLevel(level);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                byte[] grid = new byte[81];
+                int solved = 0;
+                int notUnique = 0;
+                long start = System.nanoTime();
+                for (int num = 1; num <= puzzles.size(); num++) {
+                    puzzles.getPuzzle(num, grid);
+                    if (!solver.isUnique(grid)) {
+                        notUnique++;
+                    }
+                    if (solver.solve(grid)) {
+                        solved++;
+                    }
+                }
+                long micros = (System.nanoTime() - start) / 1000;
+                System.out.println("level " + level + ": solved " + solved + "/" + puzzles.size()
+                        + ", not unique " + notUnique + ", " + micros / puzzles.size() + " us per puzzle");
+            }
+            return;
+        }
 //        board = new Board();
 //        board.getPuzzleFromFIle(1, 9118);
-//        board.printBoardOnConsole(board.cells);
+//        board.printBoardOnConsole();
 //
 //        while (!board.isSolved()) {
 //            while (board.solveSingleSolution(1) || board.solveALLRowsSingleCandidate() || board.solveALLColsSingleCandidate()) {
@@ -698,53 +1718,33 @@ public class Board implements Cloneable {
 //        }
 //
 //        System.out.println("a.isSolved() = " + board.isSolved());
-//        board.printBoardOnConsole(board.cells);
+//        board.printBoardOnConsole();
 
 
         // find not solvable puzzle on all level
         // 2728 7434 9118 Level3: 1460
+        TechniquePipeline pipeline = TechniquePipeline.standard();
         int puzzleNum = 1;
         do {
-            System.out.println("puzzleNum = " + puzzleNum);
+            final int num = puzzleNum;
+            Log.trace(() -> "puzzleNum = " + num);
             board = new Board();
             board.getPuzzleFromFIle(2, puzzleNum);
-            int counter = 0;
-
-            while (!board.isSolved()) {
-                while (board.solveSingleSolution(1) || board.solveALLRowsSingleCandidate() || board.solveALLColsSingleCandidate()) {
-                    board.solveAllBlockSingleCandidate();
-                }
-                try {
-                    if (solveByAssumption(board)) {
-                        System.out.println("solved a point by assumption.");
-                    }
-                } catch (CloneNotSupportedException e) {
-                    e.printStackTrace();
-                }
-                counter++;
-
-                if (!board.isSolved() && counter == 3) {
-                    board.printBoardOnConsole(board.originalCells);
-                    System.out.println("puzzleNum = " + puzzleNum);
-                    System.out.println("a.isSolved() = " + board.isSolved());
-                    board.printBoardOnConsole(board.cells);
-                    for (int b = 1; b < 10; b++) {
-                        board.printPossibilityMap(b);
-                    }
-                }
-            }
+            pipeline.solve(board);
 
             if (!board.isSolved()) {
-                board.printBoardOnConsole(board.originalCells);
-                System.out.println("puzzleNum = " + puzzleNum);
-                System.out.println("a.isSolved() = " + board.isSolved());
-                board.printBoardOnConsole(board.cells);
+                Log.info(() -> "puzzleNum = " + num + " is not solved");
+                Board unsolved = board;
+                Log.dump(unsolved::toOriginalGridString);
+                Log.dump(unsolved::toGridString);
                 for (int b = 1; b < 10; b++) {
-                    board.printPossibilityMap(b);
+                    int digit = b;
+                    Log.dump(() -> unsolved.possibilityMapString(digit));
                 }
             }
 
             puzzleNum++;
-        } while (board.isSolved());
+        } while (board.isSolved() && puzzleNum <= 10000);
+        pipeline.printStats();
     }
 }
@@ -1,10 +1,15 @@
-import java.awt.*;
-import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.io.IOException;
+import java.util.SplittableRandom;
 
 /**
  * This is a utility class for swapping or randomize the board while still
  * maintain it as a valid solution (Assuming that the board given is correct and complete)
+ * <p>
+ * A board here is an array of 81 numbers (0 means empty), as given by a PuzzleSource.
+ * Every method is a Symmetry applied in place, so a puzzle keeps its number of solutions.
+ * To apply many transformations, compose them with Symmetry.then() and apply the result once.
+ * <p>
+ * usage: BoardUtil [level] [puzzleNum] [count] [seed], prints count random variants of a puzzle
  *
  * @author Hsuanchen Wan(Walter).
  */
@@ -14,202 +19,101 @@ public final class BoardUtil {
     }
 
     /**
-     * BoardUtil two cellsJButton
+     * Swap two rows in the board, they must belong to the same row block
      *
-     * @param x1 x coordinate of cell 1
-     * @param y1 y coordinate of cell 1
-     * @param x2 x coordinate of cell 2
-     * @param y2 y coordinate of cell 2
+     * @param nums the board data
+     * @param row1 the first row (1~9)
+     * @param row2 the second row (1~9)
      */
-    public static void swapCells(Map<Point, Cell> cells, int x1, int y1, int x2, int y2) {
-        Point key1 = new Point(x1, y1);
-        Point key2 = new Point(x2, y2);
-        Cell cell = cells.get(key1);
-        cells.put(key1, cells.get(key2));
-        cells.put(key2, cell);
+    public static void swapRows(byte[] nums, int row1, int row2) {
+        Symmetry.swapRows(row1, row2).apply(nums);
     }
 
     /**
-     * BoardUtil two rows in the board
+     * Swap two columns in the board, they must belong to the same column block
      *
-     * @param cells the board data
-     * @param row1 the first row
-     * @param row2 the second row
+     * @param nums the board data
+     * @param col1 the first column (1~9)
+     * @param col2 the second column (1~9)
      */
-    public static void swapRows(Map<Point, Cell> cells, int row1, int row2) {
-        // do not allow swap if rows do not belong to the same row block
-//        if ((row1-1)/3 != (row2-1)/3) {
-//            throw new AssertionError("rows do not belong to the same row block.");
-//        }
-
-        for (int indRow = 1; indRow <= 9; indRow++) {
-            swapCells(cells, indRow, row1, indRow, row2);
-        }
+    public static void swapCols(byte[] nums, int col1, int col2) {
+        Symmetry.swapCols(col1, col2).apply(nums);
     }
 
     /**
-     * BoardUtil two columns in the board
+     * Swap the whole row block (i.e. swap row 1,2,3 and row 4,5,6)
      *
-     * @param cells the board data
-     * @param col1 the first column
-     * @param col2 the second column
+     * @param nums the board data
+     * @param rb1  row block 1 (1~3)
+     * @param rb2  row block 2 (1~3)
      */
-    public static void swapCols(Map<Point, Cell> cells, int col1, int col2) {
-        // do not allow swap if cols do not belong to the same column block
-//        if ((col1 - 1) / 3 != (col2 - 1) / 3) {
-//            throw new AssertionError("Columns do not belong to the same column block.");
-//        }
-
-        for (int indCol = 1; indCol <= 9; indCol++) {
-            swapCells(cells, col1, indCol, col2, indCol);
-        }
+    public static void swapRowBlocks(byte[] nums, int rb1, int rb2) {
+        Symmetry.swapBands(rb1, rb2).apply(nums);
     }
 
     /**
-     * BoardUtil the whole row block (i.e. swap row 1,2,3 and row 4,5,6)
+     * Swap the whole column block (i.e. swap column 7,8,9 and column 4,5,6)
      *
-     * @param cells the board data
-     * @param rb1 row block 1
-     * @param rb2 row block 2
+     * @param nums the board data
+     * @param cb1  column block 1 (1~3)
+     * @param cb2  column block 2 (1~3)
      */
-    public static void swapRowBlocks(Map<Point, Cell> cells, int rb1, int rb2) {
-        // for each row in the row block
-        for (int row = 1; row <= 3; row++) {
-            // swap each row
-            swapRows(cells, (rb1 - 1) * 3 + row, (rb2 - 1) * 3 + row);
-        }
+    public static void swapColBlocks(byte[] nums, int cb1, int cb2) {
+        Symmetry.swapStacks(cb1, cb2).apply(nums);
     }
 
     /**
-     * BoardUtil the whole column block (i.e. swap column 7,8,9 and column 4,5,6)
+     * Rotate the board 90 degree clockwise
      *
-     * @param cells the board data
-     * @param cb1 column block 1
-     * @param cb2 column block 2
+     * @param nums the board data
      */
-    public static void swapCOlBlocks(Map<Point, Cell> cells, int cb1, int cb2) {
-        // for each row in the row block
-        for (int col = 1; col <= 3; col++) {
-            // swap each column
-            swapCols(cells, (cb1 - 1) * 3 + col, (cb2 - 1) * 3 + col);
-        }
+    public static void rotateBoard(byte[] nums) {
+        Symmetry.rotate().apply(nums);
     }
 
     /**
-     * Randomly swapping rows
+     * Randomize the board with one random Symmetry: rows, columns, row blocks, column blocks,
+     * transpose and numbers are all shuffled in one pass.
      *
-     * @param cells the board data
-     * @param times the method will swap this many times
+     * @param nums   the board data
+     * @param random the random generator
      */
-    private static void swapRandomRows(Map<Point, Cell> cells, int times) {
-        int randRowBlock;
-        ArrayList<Integer> randRow;
-
-        for (int i = 0; i < times; i++) {
-            randRow = new ArrayList<>();
-            randRow.add(1);
-            randRow.add(2);
-            randRow.add(3);
-            Collections.shuffle(randRow);
-            randRowBlock = ThreadLocalRandom.current().nextInt(1, 3 + 1);
-
-            swapRows(cells, randRowBlock * 3 + randRow.get(0),
-                    randRowBlock * 3 + randRow.get(1));
-        }
+    public static void randomizeBoard(byte[] nums, SplittableRandom random) {
+        Symmetry.random(random).apply(nums);
     }
 
     /**
-     * Randomly swapping colunms
+     * Randomize a Board, both the puzzle and the numbers placed so far.
      *
-     * @param cells the board data
-     * @param times the method will swap this many times
+     * @param board  the board
+     * @param random the random generator
      */
-    private static void swapRandomCols(Map<Point, Cell> cells, int times) {
-        int randColBlock;
-        ArrayList<Integer> randCols;
-
-        for (int i = 0; i < times; i++) {
-            randCols = new ArrayList<>();
-            randCols.add(1);
-            randCols.add(2);
-            randCols.add(3);
-            Collections.shuffle(randCols);
-            randColBlock = ThreadLocalRandom.current().nextInt(1, 3 + 1);
-
-            swapCols(cells, randColBlock * 3 + randCols.get(0),
-                    randColBlock * 3 + randCols.get(1));
-        }
+    public static void randomizeBoard(Board board, SplittableRandom random) {
+        board.transform(Symmetry.random(random));
     }
 
     /**
-     * BoardUtil random row blocks
+     * Print random variants of a bundled puzzle, see the class description for usage.
      *
-     * @param cells the board data
-     * @param times the method will swap this many times
+     * @param args command line arguments
      */
-    private static void swapRandomRowBlocks(Map<Point, Cell> cells, int times) {
-        ArrayList<Integer> randRowBlocks;
-
-        for (int i = 0; i < times; i++) {
-            randRowBlocks = new ArrayList<>();
-            randRowBlocks.add(1);
-            randRowBlocks.add(2);
-            randRowBlocks.add(3);
-            Collections.shuffle(randRowBlocks);
-
-            swapRowBlocks(cells, randRowBlocks.get(0), randRowBlocks.get(1));
+    public static void main(String[] args) {
+        int level = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int puzzleNum = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        SplittableRandom random = args.length > 3
+                ? new SplittableRandom(Long.parseLong(args[3])) : new SplittableRandom();
+        byte[] puzzle = new byte[81];
+        byte[] variant = new byte[81];
+        try {
+            PuzzleLibrary.getLevel(level).getPuzzle(puzzleNum, puzzle);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
         }
-    }
-
-    /**
-     * BoardUtil random column blocks
-     *
-     * @param cells the board data
-     * @param times the method will swap this many times
-     */
-    private static void swapRandomColBlocks(Map<Point, Cell> cells, int times) {
-        ArrayList<Integer> randColBlocks;
-
-        for (int i = 0; i < times; i++) {
-            randColBlocks = new ArrayList<>();
-            randColBlocks.add(1);
-            randColBlocks.add(2);
-            randColBlocks.add(3);
-            Collections.shuffle(randColBlocks);
-
-            swapCOlBlocks(cells, randColBlocks.get(0), randColBlocks.get(1));
-        }
-    }
-
-    /**
-     * Roatate the board 90 degree clockwise
-     * @param cells the board data
-     */
-    private static void rotateBoard(Map<Point, Cell> cells) {
-        Map<Point, Cell> newCells = new HashMap<>();
-        int counter = 0;
-        for (int x = 9; x >= 1; x--) {
-            for (int y = 1; y <= 9; y++) {
-                newCells.put(new Point(x, y),
-                        cells.get(new Point(counter % 9 + 1, (counter / 9 + 1) )));
-                counter++;
-            }
-        }
-        cells = newCells;
-    }
-
-    /**
-     * Use swapRowBlocks, swapRandomRows, swapRandomRowBlocks, swapRandomColBlocks
-     * and rotateBoard to randomize the board
-     * @param cells the board data
-     */
-    public static void randomizeBoard(Map<Point, Cell> cells) {
-        for (int i = 0; i < 20; i++) {
-            swapRandomRows(cells, 10);
-            swapRandomColBlocks(cells, 1);
-            swapRandomCols(cells, 10);
-            swapRandomRowBlocks(cells, 1);
-            rotateBoard(cells);
+        for (int i = 0; i < count; i++) {
+            Symmetry.random(random).apply(puzzle, variant);
+            System.out.println(PuzzleGenerator.toLine(variant));
         }
     }
 }
@@ -0,0 +1,158 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * BoardView sits between the game logic and the 81 cell buttons of GUI_Sudoku.
+ * <p>
+ * The game sets the text and colors of cells on the view, which only records them and marks
+ * the cells that really change as dirty. A Swing Timer then applies all dirty cells in one
+ * update per frame, so a loop that touches every cell many times (i.e. "Solve All") costs one
+ * repaint of the cells that changed instead of thousands of JButton calls.
+ * <p>
+ * Cells given to reveal() are shown a few per frame in the order they are given,
+ * so a puzzle solved at once by the computer fills in as a short animation.
+ * All methods must be called on the event dispatch thread.
+ */
+public final class BoardView {
+    // about 60 frames per second
+    public static final int FRAME_MILLIS = 16;
+    // cells shown per frame by reveal()
+    public static final int REVEALS_PER_FRAME = 2;
+
+    private final JButton[][] buttons;
+    // state wanted for every cell, by index (row - 1) * 9 + (col - 1)
+    private final String[] texts = new String[81];
+    private final Color[] backgrounds = new Color[81];
+    private final Color[] foregrounds = new Color[81];
+    // cells whose wanted state is not on the button yet
+    private final boolean[] dirty = new boolean[81];
+    // cells waiting in the reveal queue, they are not applied by a normal frame
+    private final boolean[] held = new boolean[81];
+    private final int[] revealQueue = new int[81];
+    private int revealHead;
+    private int revealTail;
+    private final Timer timer;
+
+    /**
+     * Constructor
+     *
+     * @param buttons the cell buttons, [col - 1][row - 1]
+     */
+    public BoardView(JButton[][] buttons) {
+        this.buttons = buttons;
+        for (int i = 0; i < 81; i++) {
+            JButton button = buttons[i % 9][i / 9];
+            texts[i] = button.getText();
+            backgrounds[i] = button.getBackground();
+            foregrounds[i] = button.getForeground();
+        }
+        timer = new Timer(FRAME_MILLIS, e -> frame());
+        timer.setCoalesce(true);
+    }
+
+    public String getText(int col, int row) {
+        return texts[Grid.index(col, row)];
+    }
+
+    public Color getBackground(int col, int row) {
+        return backgrounds[Grid.index(col, row)];
+    }
+
+    public void setText(int col, int row, String text) {
+        int i = Grid.index(col, row);
+        if (!text.equals(texts[i])) {
+            texts[i] = text;
+            markDirty(i);
+        }
+    }
+
+    public void setBackground(int col, int row, Color color) {
+        int i = Grid.index(col, row);
+        if (!color.equals(backgrounds[i])) {
+            backgrounds[i] = color;
+            markDirty(i);
+        }
+    }
+
+    public void setForeground(int col, int row, Color color) {
+        int i = Grid.index(col, row);
+        if (!color.equals(foregrounds[i])) {
+            foregrounds[i] = color;
+            markDirty(i);
+        }
+    }
+
+    /**
+     * Show the changes of a cell after the cells revealed before it, a few cells per frame.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     */
+    public void reveal(int col, int row) {
+        int i = Grid.index(col, row);
+        if (!held[i] && dirty[i]) {
+            if (revealTail == revealQueue.length) {
+                // fewer than 81 cells are held, so moving the queue down makes room
+                System.arraycopy(revealQueue, revealHead, revealQueue, 0, revealTail - revealHead);
+                revealTail -= revealHead;
+                revealHead = 0;
+            }
+            held[i] = true;
+            revealQueue[revealTail++] = i;
+            timer.start();
+        }
+    }
+
+    /**
+     * Apply every change now, including the cells waiting to be revealed.
+     * Use it before something that blocks the event dispatch thread, like a dialog.
+     */
+    public void flush() {
+        revealHead = 0;
+        revealTail = 0;
+        for (int i = 0; i < 81; i++) {
+            held[i] = false;
+            apply(i);
+        }
+        timer.stop();
+    }
+
+    private void markDirty(int i) {
+        if (!dirty[i]) {
+            dirty[i] = true;
+            timer.start();
+        }
+    }
+
+    /**
+     * One frame: apply the dirty cells that are not held and reveal the next cells of the queue.
+     */
+    private void frame() {
+        for (int i = 0; i < 81; i++) {
+            if (!held[i]) {
+                apply(i);
+            }
+        }
+        for (int k = 0; k < REVEALS_PER_FRAME && revealHead < revealTail; k++) {
+            int i = revealQueue[revealHead++];
+            held[i] = false;
+            apply(i);
+        }
+        if (revealHead == revealTail) {
+            revealHead = 0;
+            revealTail = 0;
+            timer.stop();
+        }
+    }
+
+    private void apply(int i) {
+        if (!dirty[i]) {
+            return;
+        }
+        dirty[i] = false;
+        JButton button = buttons[i % 9][i / 9];
+        button.setText(texts[i]);
+        button.setBackground(backgrounds[i]);
+        button.setForeground(foregrounds[i]);
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * CandidateSet represent the possible numbers (1~9) of a cell as a 9-bit mask stored in a short.
+ * Number num is in the set if bit (num - 1) is set.
+ * <p>
+ * The static methods work on plain int masks, so hot loops in Board can use them
+ * on its primitive arrays without creating any object.
+ */
+public final class CandidateSet implements Cloneable {
+    // mask with all nine numbers
+    public static final int ALL = 0x1FF;
+
+    private short bits;
+
+    /**
+     * Constructor
+     * it creates an empty set
+     */
+    public CandidateSet() {
+        this(0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param bits the mask of numbers in the set
+     */
+    public CandidateSet(int bits) {
+        this.bits = (short) (bits & ALL);
+    }
+
+    /**
+     * Get the bit that represent a number.
+     *
+     * @param num the number (1~9)
+     * @return the bit of the number
+     */
+    public static int bit(int num) {
+        return 1 << (num - 1);
+    }
+
+    /**
+     * Count numbers in a mask.
+     *
+     * @param mask the mask
+     * @return how many numbers are in the mask
+     */
+    public static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Check if a mask contains exactly one number.
+     *
+     * @param mask the mask
+     * @return true if only one number is in the mask
+     */
+    public static boolean isSingle(int mask) {
+        return mask != 0 && (mask & (mask - 1)) == 0;
+    }
+
+    /**
+     * Get the smallest number in a mask.
+     *
+     * @param mask the mask
+     * @return the smallest number, 0 if the mask is empty
+     */
+    public static int lowest(int mask) {
+        return mask == 0 ? 0 : Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * Remove the smallest number from a mask, used to iterate over a mask:
+     * for (int m = mask; m != 0; m = CandidateSet.withoutLowest(m)) { num = CandidateSet.lowest(m); }
+     *
+     * @param mask the mask
+     * @return the mask without its smallest number
+     */
+    public static int withoutLowest(int mask) {
+        return mask & (mask - 1);
+    }
+
+    /**
+     * Check if a number is in a mask.
+     *
+     * @param mask the mask
+     * @param num  the number (1~9)
+     * @return true if the number is in the mask
+     */
+    public static boolean contains(int mask, int num) {
+        return (mask & bit(num)) != 0;
+    }
+
+    /**
+     * @return numbers in either mask
+     */
+    public static int union(int a, int b) {
+        return (a | b) & ALL;
+    }
+
+    /**
+     * @return numbers in both masks
+     */
+    public static int intersect(int a, int b) {
+        return a & b & ALL;
+    }
+
+    /**
+     * @return numbers in a but not in b
+     */
+    public static int subtract(int a, int b) {
+        return a & ~b & ALL;
+    }
+
+    /**
+     * Get the mask of the set.
+     *
+     * @return the mask
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Replace the whole set by a mask.
+     *
+     * @param bits the mask
+     */
+    public void setBits(int bits) {
+        this.bits = (short) (bits & ALL);
+    }
+
+    /**
+     * Add a number to the set.
+     *
+     * @param num the number (1~9)
+     * @return false if the number is already in the set or out of range
+     */
+    public boolean add(int num) {
+        if (num < 1 || num > 9 || contains(bits, num)) {
+            return false;
+        }
+        bits |= bit(num);
+        return true;
+    }
+
+    /**
+     * Remove a number from the set.
+     *
+     * @param num the number (1~9)
+     * @return false if the number is not in the set
+     */
+    public boolean remove(int num) {
+        if (num < 1 || num > 9 || !contains(bits, num)) {
+            return false;
+        }
+        bits &= ~bit(num);
+        return true;
+    }
+
+    /**
+     * @param num the number (1~9)
+     * @return true if the number is in the set
+     */
+    public boolean contains(int num) {
+        return num >= 1 && num <= 9 && contains(bits, num);
+    }
+
+    /**
+     * @return how many numbers are in the set
+     */
+    public int size() {
+        return count(bits);
+    }
+
+    /**
+     * @return true if the set is empty
+     */
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    /**
+     * @return the smallest number in the set, 0 if empty
+     */
+    public int first() {
+        return lowest(bits);
+    }
+
+    /**
+     * Get the smallest number in the set that is bigger than num.
+     *
+     * @param num the number to start after (0 to get the first)
+     * @return the next number, 0 if there is none
+     */
+    public int next(int num) {
+        return lowest(bits & (ALL << num));
+    }
+
+    /**
+     * Put all numbers 1~9 in the set.
+     */
+    public void fill() {
+        bits = ALL;
+    }
+
+    /**
+     * Remove all numbers from the set.
+     */
+    public void clear() {
+        bits = 0;
+    }
+
+    /**
+     * Add all numbers of another set.
+     *
+     * @param other the other set
+     */
+    public void union(CandidateSet other) {
+        bits = (short) union(bits, other.bits);
+    }
+
+    /**
+     * Keep only numbers that are also in another set.
+     *
+     * @param other the other set
+     */
+    public void intersect(CandidateSet other) {
+        bits = (short) intersect(bits, other.bits);
+    }
+
+    /**
+     * Remove all numbers of another set.
+     *
+     * @param other the other set
+     */
+    public void subtract(CandidateSet other) {
+        bits = (short) subtract(bits, other.bits);
+    }
+
+    /**
+     * For cloning the CandidateSet object
+     *
+     * @return the cloned CandidateSet object
+     */
+    @Override
+    public CandidateSet clone() {
+        return new CandidateSet(bits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CandidateSet && ((CandidateSet) o).bits == bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return bits;
+    }
+
+    /**
+     * @return the numbers in the set, i.e. "[1, 4, 9]"
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int m = bits; m != 0; m = withoutLowest(m)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(lowest(m));
+        }
+        return sb.append(']').toString();
+    }
+}
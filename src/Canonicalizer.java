@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonicalizer maps a puzzle to the smallest puzzle that can be made from it with a Symmetry,
+ * so two puzzles are equivalent if and only if they have the same canonical form.
+ * <p>
+ * Trying the 2 x 6^8 x 9! transformations one by one is too slow, so the puzzle is canonicalized
+ * through its solution grid, where numbers never tie:
+ * 1. for every transpose (2), first row (9) and column order (1296), numbers are relabeled so that
+ * the first row reads 123456789, which leaves only the order of the other rows to choose;
+ * 2. every row is then one int, the rows of a band are sorted and the bands are sorted by their
+ * first row, so the smallest grid of that combination is found without searching;
+ * 3. the combinations giving the smallest grid (usually one, more if the grid has automorphisms)
+ * are applied to the puzzle and the smallest puzzle is the canonical form.
+ * Rows are compared band by band and a combination stops as soon as its first band is bigger.
+ * <p>
+ * A canonicalizer is not thread-safe, use one for each thread.
+ */
+public final class Canonicalizer {
+    // the 1296 column orders that keep a grid valid, COL_ORDERS[k][c] is the source column of column c
+    private static final int[][] COL_ORDERS = new int[1296][9];
+
+    static {
+        int[][] orders3 = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        int k = 0;
+        for (int[] stacks : orders3) {
+            for (int[] in0 : orders3) {
+                for (int[] in1 : orders3) {
+                    for (int[] in2 : orders3) {
+                        int[][] inner = {in0, in1, in2};
+                        for (int c = 0; c < 9; c++) {
+                            COL_ORDERS[k][c] = stacks[c / 3] * 3 + inner[c / 3][c % 3];
+                        }
+                        k++;
+                    }
+                }
+            }
+        }
+    }
+
+    private final DlxSolver solver = new DlxSolver();
+    private final byte[] solution = new byte[81];
+    // the solution grid, [0] as it is and [1] transposed
+    private final byte[][] grids = new byte[2][81];
+    private final int[] relabel = new int[10];
+    private final int[] rowValues = new int[9];
+    private final int[] rows = new int[9];
+    private final int[] bestRows = new int[9];
+    private final int[] rowOrder = new int[9];
+    private final List<Symmetry> best = new ArrayList<>();
+    private final byte[] candidate = new byte[81];
+
+    /**
+     * Canonicalize a puzzle.
+     *
+     * @param puzzle    the 81 numbers of the puzzle (0 means empty)
+     * @param canonical the array to fill with the canonical form
+     * @return false if the puzzle does not have exactly one solution, canonical is not changed then
+     */
+    public boolean canonicalize(byte[] puzzle, byte[] canonical) {
+        System.arraycopy(puzzle, 0, solution, 0, 81);
+        if (!solver.isUnique(solution)) {
+            return false;
+        }
+        System.arraycopy(puzzle, 0, solution, 0, 81);
+        solver.solve(solution);
+        findBestTransformations(solution);
+
+        boolean first = true;
+        for (Symmetry symmetry : best) {
+            symmetry.apply(puzzle, candidate);
+            if (first || compare(candidate, canonical) < 0) {
+                System.arraycopy(candidate, 0, canonical, 0, 81);
+                first = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Canonicalize a complete solution grid.
+     *
+     * @param grid      the 81 numbers of a solution grid
+     * @param canonical the array to fill with the canonical form
+     */
+    public void canonicalizeSolution(byte[] grid, byte[] canonical) {
+        findBestTransformations(grid);
+        best.get(0).apply(grid, canonical);
+    }
+
+    /**
+     * Fill best with every transformation that maps the grid to its smallest form.
+     *
+     * @param grid a complete solution grid
+     */
+    private void findBestTransformations(byte[] grid) {
+        for (int i = 0; i < 81; i++) {
+            grids[0][i] = grid[i];
+            grids[1][i] = grid[(i % 9) * 9 + i / 9];
+        }
+        best.clear();
+        bestRows[1] = Integer.MAX_VALUE;
+        for (int transpose = 0; transpose < 2; transpose++) {
+            byte[] g = grids[transpose];
+            for (int firstRow = 0; firstRow < 9; firstRow++) {
+                int band = firstRow / 3;
+                for (int[] cols : COL_ORDERS) {
+                    // relabel so that the first row reads 123456789
+                    for (int c = 0; c < 9; c++) {
+                        relabel[g[firstRow * 9 + cols[c]]] = c + 1;
+                    }
+                    // the other two rows of the first band, smaller first
+                    int a = firstRow == band * 3 ? band * 3 + 1 : band * 3;
+                    int b = firstRow == band * 3 + 2 ? band * 3 + 1 : band * 3 + 2;
+                    int va = rowValue(g, a, cols);
+                    int vb = rowValue(g, b, cols);
+                    int r1 = va < vb ? a : b;
+                    int r2 = va < vb ? b : a;
+                    int v1 = Math.min(va, vb);
+                    int v2 = Math.max(va, vb);
+                    if (v1 > bestRows[1] || (v1 == bestRows[1] && v2 > bestRows[2])) {
+                        continue;
+                    }
+                    rows[0] = 123456789;
+                    rows[1] = v1;
+                    rows[2] = v2;
+                    rowOrder[0] = firstRow;
+                    rowOrder[1] = r1;
+                    rowOrder[2] = r2;
+                    orderOtherBands(g, band, cols);
+                    int cmp = compareRows();
+                    if (cmp < 0) {
+                        System.arraycopy(rows, 0, bestRows, 0, 9);
+                        best.clear();
+                    }
+                    if (cmp <= 0) {
+                        best.add(toSymmetry(transpose, cols));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sort the rows of the two other bands and the two bands, filling rows[3~8] and rowOrder[3~8].
+     */
+    private void orderOtherBands(byte[] g, int firstBand, int[] cols) {
+        for (int r = 0; r < 9; r++) {
+            if (r / 3 != firstBand) {
+                rowValues[r] = rowValue(g, r, cols);
+            }
+        }
+        int bandX = firstBand == 0 ? 1 : 0;
+        int bandY = firstBand == 2 ? 1 : 2;
+        int minX = rowValues[sortBand(bandX, 3)];
+        int minY = rowValues[sortBand(bandY, 6)];
+        if (minY < minX) {
+            for (int k = 3; k < 6; k++) {
+                int tmp = rowOrder[k];
+                rowOrder[k] = rowOrder[k + 3];
+                rowOrder[k + 3] = tmp;
+            }
+        }
+        for (int k = 3; k < 9; k++) {
+            rows[k] = rowValues[rowOrder[k]];
+        }
+    }
+
+    /**
+     * Sort the rows of a band by value into rowOrder[offset~offset+2].
+     *
+     * @return the row with the smallest value
+     */
+    private int sortBand(int band, int offset) {
+        for (int k = 0; k < 3; k++) {
+            int r = band * 3 + k;
+            int j = offset + k;
+            // insertion sort of three rows
+            while (j > offset && rowValues[rowOrder[j - 1]] > rowValues[r]) {
+                rowOrder[j] = rowOrder[j - 1];
+                j--;
+            }
+            rowOrder[j] = r;
+        }
+        return rowOrder[offset];
+    }
+
+    /**
+     * @return the value of a source row after the column order and relabeling, as a 9 digits int
+     */
+    private int rowValue(byte[] g, int row, int[] cols) {
+        int value = 0;
+        for (int c = 0; c < 9; c++) {
+            value = value * 10 + relabel[g[row * 9 + cols[c]]];
+        }
+        return value;
+    }
+
+    /**
+     * @return the comparison of rows with bestRows
+     */
+    private int compareRows() {
+        for (int k = 1; k < 9; k++) {
+            if (rows[k] != bestRows[k]) {
+                return rows[k] < bestRows[k] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Build the Symmetry of the current combination, from rowOrder, cols and relabel.
+     */
+    private Symmetry toSymmetry(int transpose, int[] cols) {
+        int[] rowPerm = rowOrder.clone();
+        Symmetry symmetry = Symmetry.permute(rowPerm, cols);
+        if (transpose == 1) {
+            symmetry = Symmetry.transpose().then(symmetry);
+        }
+        int[] perm = new int[9];
+        for (int n = 1; n <= 9; n++) {
+            perm[n - 1] = relabel[n];
+        }
+        return symmetry.then(Symmetry.relabel(perm));
+    }
+
+    /**
+     * @return the lexicographic comparison of two grids
+     */
+    static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < 81; i++) {
+            if (a[i] != b[i]) {
+                return a[i] - b[i];
+            }
+        }
+        return 0;
+    }
+}
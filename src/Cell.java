@@ -1,5 +1,3 @@
-import java.util.ArrayList;
-
 /**
  * Cell class represent a cell in a Sudoku game
  *
@@ -9,7 +7,7 @@ public class Cell implements Cloneable {
     // number in the cell that is correct
     private int num;
     // store possible number that can be put in the cell
-    public ArrayList<Integer> possibleNumbers = new ArrayList<>();
+    private CandidateSet possibleNumbers = new CandidateSet();
 
     public Cell() {
         this(0);
@@ -52,23 +50,31 @@ public class Cell implements Cloneable {
     }
 
     /**
-     * Remove a possibility in possibleNumbers ArrayList
-     * num use Integer instead of int since it uses "remove Object" version of "remove()" in ArrayList
+     * Get the possible numbers of the cell.
+     *
+     * @return the CandidateSet of possible numbers
+     */
+    public CandidateSet getPossibleNumbers() {
+        return possibleNumbers;
+    }
+
+    /**
+     * Remove a possibility in possibleNumbers
      *
      * @param num the number set to remove
      * @return false if the number do not exist
      */
-    public boolean removePossibility(Integer num) {
+    public boolean removePossibility(int num) {
         return possibleNumbers.remove(num);
     }
 
     /**
-     * Add a possibility to the possibleNumbers ArrayList
+     * Add a possibility to the possibleNumbers
      *
      * @param num the number to be added
-     * @return true if successful
+     * @return false if the number already exist
      */
-    public boolean addPossibility(Integer num) {
+    public boolean addPossibility(int num) {
         return possibleNumbers.add(num);
     }
 
@@ -76,12 +82,7 @@ public class Cell implements Cloneable {
      * reset all possibility of a cell
      */
     public void resetPossibility() {
-        while (!possibleNumbers.isEmpty()) {
-            possibleNumbers.remove(0);
-        }
-        for (Integer i = 1; i <= 9; i++) {
-            possibleNumbers.add(i);
-        }
+        possibleNumbers.fill();
     }
 
     /**
@@ -91,12 +92,7 @@ public class Cell implements Cloneable {
      * @return false if the number don't exist in possibleNumbers
      */
     public boolean doesPossibilityExist(int num) {
-        for (Integer possibleNumber : possibleNumbers) {
-            if (possibleNumber == num) {
-                return true;
-            }
-        }
-        return false;
+        return possibleNumbers.contains(num);
     }
 
     /**
@@ -106,7 +102,7 @@ public class Cell implements Cloneable {
     @Override
     public Cell clone() {
         Cell cloned = new Cell(this.getNum());
-        cloned.possibleNumbers = new ArrayList<>(this.possibleNumbers);
+        cloned.possibleNumbers = possibleNumbers.clone();
 
         return cloned;
     }
@@ -122,7 +118,7 @@ public class Cell implements Cloneable {
         if (!a.removePossibility(1)) {
             System.out.println("failed to remove.");
         }
-        a.possibleNumbers.forEach(System.out::println);
+        System.out.println(a.getPossibleNumbers());
     }
 
 }
@@ -0,0 +1,115 @@
+/**
+ * DigitBoards holds, for every number, the cells where it is still possible as an 81-bit bitboard
+ * in two longs: cell index i (see Grid) is bit i of lo for i < 64 and bit (i - 64) of hi otherwise.
+ * <p>
+ * A question about a whole number, like "which cells of these columns can hold a 7 and are not in
+ * these rows", is then a few ANDs on two longs instead of a loop over the cells. The fish, wing and
+ * coloring techniques of Board are built on it.
+ * <p>
+ * The boards are a snapshot: load() copies the possibilities of a board, and they are not updated
+ * when the board changes.
+ */
+public final class DigitBoards {
+    // cells of every unit, as in Grid.UNITS
+    static final long[] UNIT_LO = new long[27];
+    static final long[] UNIT_HI = new long[27];
+    // peers of every cell, as in Grid.PEERS
+    static final long[] PEER_LO = new long[81];
+    static final long[] PEER_HI = new long[81];
+
+    static {
+        for (int unit = 0; unit < 27; unit++) {
+            for (int i : Grid.UNITS[unit]) {
+                if (i < 64) {
+                    UNIT_LO[unit] |= 1L << i;
+                } else {
+                    UNIT_HI[unit] |= 1L << (i - 64);
+                }
+            }
+        }
+        for (int i = 0; i < 81; i++) {
+            for (int peer : Grid.PEERS[i]) {
+                if (peer < 64) {
+                    PEER_LO[i] |= 1L << peer;
+                } else {
+                    PEER_HI[i] |= 1L << (peer - 64);
+                }
+            }
+        }
+    }
+
+    // possible cells of every number, [num - 1]
+    final long[] lo = new long[9];
+    final long[] hi = new long[9];
+
+    /**
+     * Copy the possibilities of a board.
+     *
+     * @param candidates the CandidateSet mask of every cell
+     */
+    void load(short[] candidates) {
+        for (int num = 0; num < 9; num++) {
+            lo[num] = 0;
+            hi[num] = 0;
+        }
+        for (int i = 0; i < 81; i++) {
+            for (int rest = candidates[i]; rest != 0; rest &= rest - 1) {
+                int num = Integer.numberOfTrailingZeros(rest);
+                if (i < 64) {
+                    lo[num] |= 1L << i;
+                } else {
+                    hi[num] |= 1L << (i - 64);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param num   the number (1~9)
+     * @param index the cell index
+     * @return true if the number is possible in the cell
+     */
+    boolean has(int num, int index) {
+        return index < 64 ? (lo[num - 1] & (1L << index)) != 0 : (hi[num - 1] & (1L << (index - 64))) != 0;
+    }
+
+    /**
+     * @param num  the number (1~9)
+     * @param unit the unit index in Grid.UNITS
+     * @return the positions in the unit (bit k for Grid.UNITS[unit][k]) where the number is possible
+     */
+    int positions(int num, int unit) {
+        long l = lo[num - 1] & UNIT_LO[unit];
+        long h = hi[num - 1] & UNIT_HI[unit];
+        if ((l | h) == 0) {
+            return 0;
+        }
+        int mask = 0;
+        int[] cells = Grid.UNITS[unit];
+        for (int k = 0; k < 9; k++) {
+            int i = cells[k];
+            if (i < 64 ? (l & (1L << i)) != 0 : (h & (1L << (i - 64))) != 0) {
+                mask |= 1 << k;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param lo low half of a bitboard
+     * @param hi high half of a bitboard
+     * @return how many cells are in the bitboard
+     */
+    static int count(long lo, long hi) {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    /**
+     * @param lo low half of a bitboard, not empty if hi is empty
+     * @param hi high half of a bitboard
+     * @return the lowest cell index in the bitboard
+     */
+    static int first(long lo, long hi) {
+        return lo != 0 ? Long.numberOfTrailingZeros(lo) : 64 + Long.numberOfTrailingZeros(hi);
+    }
+}
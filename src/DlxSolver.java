@@ -0,0 +1,210 @@
+/**
+ * DlxSolver solves a puzzle as an exact cover problem with Knuth's Algorithm X and Dancing Links.
+ * <p>
+ * The exact cover matrix has 729 rows (a number in a cell) and 324 columns (constraints):
+ * |-----------|------------------------------------|
+ * | 0~80      | the cell has a number              |
+ * | 81~161    | the row has the number             |
+ * | 162~242   | the column has the number          |
+ * | 243~323   | the block has the number           |
+ * |-----------|------------------------------------|
+ * The links are kept in int arrays instead of node objects. The full matrix is built once and
+ * copied for every solve, so a solve does not allocate.
+ */
+public final class DlxSolver implements Solver {
+    public static final String NAME = "dlx";
+
+    private static final int COLUMNS = 324;
+    private static final int ROWS = 729;
+    // root node, column headers and 4 nodes for every row
+    private static final int NODES = 1 + COLUMNS + ROWS * 4;
+    private static final int FIRST_ROW_NODE = 1 + COLUMNS;
+
+    // links of the full matrix, copied at the start of every solve
+    private static final int[] LEFT = new int[NODES];
+    private static final int[] RIGHT = new int[NODES];
+    private static final int[] UP = new int[NODES];
+    private static final int[] DOWN = new int[NODES];
+    private static final int[] COLUMN = new int[NODES];
+    private static final int[] SIZE = new int[1 + COLUMNS];
+
+    static {
+        // the header of column j is node j + 1, node 0 is the root
+        for (int h = 0; h <= COLUMNS; h++) {
+            LEFT[h] = h == 0 ? COLUMNS : h - 1;
+            RIGHT[h] = h == COLUMNS ? 0 : h + 1;
+            UP[h] = h;
+            DOWN[h] = h;
+            COLUMN[h] = h;
+        }
+        for (int row = 0; row < ROWS; row++) {
+            int cell = row / 9;
+            int num = row % 9;
+            int[] columns = {
+                    cell,
+                    81 + Grid.ROW[cell] * 9 + num,
+                    162 + Grid.COL[cell] * 9 + num,
+                    243 + Grid.BLOCK[cell] * 9 + num
+            };
+            int first = FIRST_ROW_NODE + row * 4;
+            for (int k = 0; k < 4; k++) {
+                int node = first + k;
+                int header = columns[k] + 1;
+                LEFT[node] = k == 0 ? first + 3 : node - 1;
+                RIGHT[node] = k == 3 ? first : node + 1;
+                // append to the bottom of the column
+                UP[node] = UP[header];
+                DOWN[node] = header;
+                DOWN[UP[header]] = node;
+                UP[header] = node;
+                COLUMN[node] = header;
+                SIZE[header]++;
+            }
+        }
+    }
+
+    private final int[] left = new int[NODES];
+    private final int[] right = new int[NODES];
+    private final int[] up = new int[NODES];
+    private final int[] down = new int[NODES];
+    private final int[] size = new int[1 + COLUMNS];
+    // matrix row chosen at every depth of the search
+    private final int[] chosen = new int[81];
+    private byte[] result;
+    private int solutions;
+    private int limit;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean solve(byte[] grid) {
+        if (countSolutions(grid, 1) == 0) {
+            return false;
+        }
+        System.arraycopy(result, 0, grid, 0, 81);
+        return true;
+    }
+
+    /**
+     * Search solutions of a grid until limit solutions are found.
+     * The first solution found is kept in a scratch copy of the grid.
+     */
+    @Override
+    public int countSolutions(byte[] grid, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit should be 1 or more: " + limit);
+        }
+        System.arraycopy(LEFT, 0, left, 0, NODES);
+        System.arraycopy(RIGHT, 0, right, 0, NODES);
+        System.arraycopy(UP, 0, up, 0, NODES);
+        System.arraycopy(DOWN, 0, down, 0, NODES);
+        System.arraycopy(SIZE, 0, size, 0, 1 + COLUMNS);
+        if (result == null) {
+            result = new byte[81];
+        }
+        System.arraycopy(grid, 0, result, 0, 81);
+        solutions = 0;
+        this.limit = limit;
+
+        // select the rows of the given numbers
+        for (int cell = 0; cell < 81; cell++) {
+            if (grid[cell] == 0) {
+                continue;
+            }
+            int first = FIRST_ROW_NODE + (cell * 9 + grid[cell] - 1) * 4;
+            for (int k = 0; k < 4; k++) {
+                int header = COLUMN[first + k];
+                // the constraint is already met by another given number
+                if (right[left[header]] != header) {
+                    return 0;
+                }
+                cover(header);
+            }
+        }
+        search(0);
+        return solutions;
+    }
+
+    /**
+     * Algorithm X, choosing the column with the fewest rows first.
+     *
+     * @param depth how many rows are chosen so far
+     * @return true if enough solutions are found and the search should stop
+     */
+    private boolean search(int depth) {
+        if (right[0] == 0) {
+            if (solutions++ == 0) {
+                for (int k = 0; k < depth; k++) {
+                    int row = (chosen[k] - FIRST_ROW_NODE) / 4;
+                    result[row / 9] = (byte) (row % 9 + 1);
+                }
+            }
+            return solutions >= limit;
+        }
+
+        int column = right[0];
+        for (int h = right[column]; h != 0; h = right[h]) {
+            if (size[h] < size[column]) {
+                column = h;
+                if (size[h] <= 1) {
+                    break;
+                }
+            }
+        }
+        if (size[column] == 0) {
+            return false;
+        }
+
+        cover(column);
+        boolean stop = false;
+        for (int node = down[column]; node != column && !stop; node = down[node]) {
+            chosen[depth] = node - (node - FIRST_ROW_NODE) % 4;
+            for (int j = right[node]; j != node; j = right[j]) {
+                cover(COLUMN[j]);
+            }
+            stop = search(depth + 1);
+            for (int j = left[node]; j != node; j = left[j]) {
+                uncover(COLUMN[j]);
+            }
+        }
+        uncover(column);
+        return stop;
+    }
+
+    /**
+     * Remove a column and every row that meets it.
+     *
+     * @param header the column header
+     */
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int i = down[header]; i != header; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[COLUMN[j]]--;
+            }
+        }
+    }
+
+    /**
+     * Put back a column removed by cover(), in the reverse order.
+     *
+     * @param header the column header
+     */
+    private void uncover(int header) {
+        for (int i = up[header]; i != header; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[COLUMN[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+}
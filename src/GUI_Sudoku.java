@@ -4,8 +4,12 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.SplittableRandom;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -21,9 +25,9 @@ import java.util.concurrent.ThreadLocalRandom;
  * This program has the ability to detect "obvious" wrong answer and show it on red color.
  * It also have the ability to solve a cell at a time for the player.
  * <p>
- * The puzzle (in text files) is generated by https://www.sudokuoftheday.com/techniques/
- * There are ways to generate puzzles(it can even select difficulty).
- * But it is too complex for this project.
+ * The puzzles of the level files come from https://www.sudokuoftheday.com/techniques/
+ * A new game picks a random puzzle of the selected level among all the puzzles of its file.
+ * If the file cannot be read, a PuzzleGenerator makes a new puzzle of the level instead.
  *
  * @author Hsuanchen Wan(Walter).
  */
@@ -42,91 +46,62 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
     private static final Color BLACK = new Color(0, 0, 0);
     private static final Color BLUE = new Color(0, 70, 135);
     private static final Color LIGHT_GRAY = new Color(188, 188, 188);
+    private static final Color PINK = new Color(255, 215, 215);
 
     // set font
     private static final Font FONT_DIALOG = new Font("Dialog", Font.BOLD, 15);
     private static final Font FONT_PUZZLE_CELLS = new Font("Arial", Font.BOLD, 28);
     private static final Font FONT_SELECTED_NUM = new Font("Arial", Font.BOLD, 20);
 
+    private static final File CACHE_FILE = new File("solutions.cache");
+    // time budget of a background solve
+    private static final long HINT_BUDGET_MILLIS = 5000;
+    private static final long SOLVE_ALL_BUDGET_MILLIS = 60000;
+
     // set board swing elements
     private Board board = new Board();
     private ArrayList<Point> history = new ArrayList<>();
     private int puzzleLevel = 1;
     private int puzzleNum = 0;
+    // makes the puzzles when the level file cannot be read, created the first time
+    private PuzzleGenerator generator;
     private int selectedNum;
     private boolean solveAllMode = false;
+    // techniques used to solve a cell, cheapest first
+    private TechniquePipeline pipeline = TechniquePipeline.standard();
+    // engine used by "Solve All", null to solve cell by cell with the techniques in Board
+    private Solver solver = null;
+    // solutions of the puzzles played so far, saved to CACHE_FILE when the program exits
+    private final SolutionCache cache = new SolutionCache(SolutionCache.DEFAULT_CAPACITY);
+    // the running background solve, null if none
+    private SolveTask solveTask;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
     private boolean[][] puzzleCells = new boolean[9][9];
     private boolean[][] oldPuzzleCells = new boolean[9][9];
     private JButton[][] cellsJButton = new JButton[9][9];
+    // every change of text or color of a cell goes through the view, see BoardView
+    private BoardView view;
     private ActionListener[][] al = new ActionListener[9][9];
 
     /**
-     * Check if the number to be written on the puzzle(toBeWrittenNum) is legal
-     * meaning if the number violated one of the rules
-     *
-     * @param rule           types of rule (ROW, COL, BLOCK)
-     * @param num            (ROW: check row [num]) (COL: check column [num]) (BLOCK: check block [num])
-     * @param toBeWrittenNum number to be written on the puzzle
-     * @return false if the rule is violated
+     * Shade every empty cell where the selected number cannot be placed, because it is
+     * already in the row, column or block of the cell. Cells showing a wrong number (RED)
+     * or a number solved by the computer (BLUE) are left as they are.
+     * Board.canPlace() reads the masks kept by the board, so the 81 checks take no allocation.
      */
-    private boolean isNumLegal(Board.RULE rule, int num, int toBeWrittenNum) {
-        ArrayList<Integer> listCells = new ArrayList<>();
-        boolean isLegal = true;
-
-        // depend on the "rule" specified, use different ways to assemble the list
-        if (rule == Board.RULE.ROW) {
-            // put a row of cells to listCells
-            for (int col = 1; col <= 9; col++) {
-                listCells.add(board.cells.get(new Point(col, num)).getNum());
-            }
-        } else if (rule == Board.RULE.COL) {
-            // put a column of cells to listCells
-            for (int row = 1; row <= 9; row++) {
-                listCells.add(board.cells.get(new Point(num, row)).getNum());
-            }
-        } else if (rule == Board.RULE.BLOCK) {
-            // put a block of cells to listCells
-            int[] blockPo = Board.blockNumberToBlockRowCol(num);
-            for (int row = (blockPo[0] - 1) * 3 + 1; row < (blockPo[0] * 3) + 1; row++) {
-                for (int col = (blockPo[1] - 1) * 3 + 1; col < (blockPo[1] * 3) + 1; col++) {
-                    listCells.add(board.cells.get(new Point(col, row)).getNum());
+    private void showConflicts() {
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                Color background = view.getBackground(col + 1, row + 1);
+                if (background != WHITE && background != PINK) {
+                    continue;
                 }
+                boolean blocked = selectedNum != 0 && board.getNum(col + 1, row + 1) == 0
+                        && !board.canPlace(col + 1, row + 1, selectedNum);
+                view.setBackground(col + 1, row + 1, blocked ? PINK : WHITE);
             }
         }
-
-        // check if legal
-        for (Integer i : listCells) {
-            if (toBeWrittenNum == i) {
-                isLegal = false;
-            }
-        }
-
-        return isLegal;
-    }
-
-    /**
-     * Translate between cell row and col number to block number
-     *
-     * @param row row number of a cell
-     * @param col column number of a cell
-     * @return block number
-     */
-    private int rowColToBlockNum(int row, int col) {
-        int blockNum = 0;
-        if (4 <= row && row <= 6) {
-            blockNum += 3;
-        } else if (7 <= row && row <= 9) {
-            blockNum += 6;
-        }
-
-        if (1 <= col && col <= 3) {
-            blockNum += 1;
-        } else if (4 <= col && col <= 6) {
-            blockNum += 2;
-        } else if (7 <= col && col <= 9) {
-            blockNum += 3;
-        }
-        return blockNum;
     }
 
     /**
@@ -135,6 +110,8 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
      */
     private void popUpPuzzleSolved() {
         makeAllCellsWhite();
+        // the dialog blocks the frames, show the last cells first
+        view.flush();
 
 //        UIManager.put("OptionPane.font", new FontUIResource(FONT_DIALOG));
         int n = JOptionPane.showConfirmDialog(
@@ -154,10 +131,36 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
     }
 
     /**
-     * Pick a random puzzle and reset the board
+     * Pick a random puzzle of the level file and reset the board,
+     * or make a new puzzle of the level if the file cannot be read
      */
     public void getNewPuzzle() {
-        puzzleNum = ThreadLocalRandom.current().nextInt(1, 1000 + 1);
+        int puzzleCount = 0;
+        try {
+            puzzleCount = PuzzleLibrary.getLevel(puzzleLevel).size();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // stop the running task before the board changes under it
+        cancelSolving();
+        if (puzzleCount > 0) {
+            puzzleNum = ThreadLocalRandom.current().nextInt(1, puzzleCount + 1);
+            board.getPuzzleFromFIle(puzzleLevel, puzzleNum);
+            Log.debug(() -> "level " + puzzleLevel + " puzzle " + puzzleNum);
+        } else {
+            if (generator == null) {
+                generator = new PuzzleGenerator(new SplittableRandom());
+            }
+            byte[] puzzle = new byte[81];
+            if (generator.generateLevel(puzzle, new byte[81], puzzleLevel) == null) {
+                // no try reached the level, the last puzzle is still a valid puzzle
+                Log.debug(() -> "no generated puzzle of level " + puzzleLevel);
+            }
+            // 0: the puzzle is not in a file
+            puzzleNum = 0;
+            board.setPuzzle(puzzle);
+            Log.debug(() -> "level " + puzzleLevel + " generated puzzle");
+        }
         resetBoard();
     }
 
@@ -166,15 +169,14 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
      * If it is RED (meaning that it is wrong) set the text to empty
      */
     private void makeAllCellsWhite() {
-        JButton tempCell;
-        for (int rowIn = 0; rowIn < 9; rowIn++) {
-            for (int colIn = 0; colIn < 9; colIn++) {
-                tempCell = cellsJButton[colIn][rowIn];
-                if (tempCell.getBackground() == RED) {
-                    tempCell.setBackground(WHITE);
-                    tempCell.setText("");
-                } else if (tempCell.getBackground() == BLUE) {
-                    tempCell.setBackground(WHITE);
+        for (int row = 1; row <= 9; row++) {
+            for (int col = 1; col <= 9; col++) {
+                Color background = view.getBackground(col, row);
+                if (background == RED) {
+                    view.setBackground(col, row, WHITE);
+                    view.setText(col, row, "");
+                } else if (background == BLUE || background == PINK) {
+                    view.setBackground(col, row, WHITE);
                 }
             }
         }
@@ -182,65 +184,113 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
 
     /**
      * Solve the puzzle for the user. If the user is REALLY lazy.
+     * The cells are solved in the background and show up one after another.
      */
-    public void solveAll() throws CloneNotSupportedException{
+    public void solveAll() {
         solveAllMode = true;
-        int count = 0;
-        while (true) {
-            if (count > 82) {
-                return;
-            } else {
-                autoSolveACell();
-            }
-            count++;
-        }
+        startSolving(true, SOLVE_ALL_BUDGET_MILLIS);
     }
 
     /**
      * Solve a cell for the user. If the user is too lazy.
      * The solver is not perfect. It haven't implement all the solving method.
+     */
+    public void autoSolveACell() {
+        startSolving(false, HINT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Start a SolveTask on the current board, cancelling the running one.
      *
-     * @throws CloneNotSupportedException
-     * @return false if failed to solve
+     * @param all          true to solve every cell, false to solve one
+     * @param budgetMillis time budget of the task
      */
-    public boolean autoSolveACell() throws CloneNotSupportedException {
+    private void startSolving(boolean all, long budgetMillis) {
+        cancelSolving();
         makeAllCellsWhite();
+        // a cancelled task may still finish its step, so every task gets its own pipeline
+        SolveTask task = new SolveTask(board, all, budgetMillis, new TechniquePipeline(pipeline.getTechniques()),
+                all ? solver : null, cache, this::showCellsSolvedByComputer);
+        task.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            } else if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                solvingDone(task);
+            }
+        });
+        progressBar.setValue(0);
+        cancelButton.setEnabled(true);
+        solveTask = task;
+        task.execute();
+    }
 
-        boolean solvedOne;
-        // if one solver solved a solution, stop. Otherwise, try another method.
-        if (board.solveSingleSolution(1) || board.solveALLRowsSingleCandidate()
-                || board.solveALLColsSingleCandidate() || board.solveAllBlockSingleCandidate()
-                || Board.solveByAssumption(board)) {
-            // if one of the solver can solve it without making assumption
-            // identify which one has been solved and make it as blue background.
-            for (int row = 0; row < 9; row++) {
-                for (int col = 0; col < 9; col++) {
+    /**
+     * Report the result of a finished SolveTask.
+     *
+     * @param task the task
+     */
+    private void solvingDone(SolveTask task) {
+        if (solveTask == task) {
+            solveTask = null;
+            cancelButton.setEnabled(false);
+        }
+        if (task.isStale()) {
+            Log.info("Auto solve cancelled");
+            return;
+        }
+        try {
+            if (task.isTimedOut()) {
+                Log.info("Auto solve stopped, out of time");
+            } else if (!task.get()) {
+                Log.info("Auto solve failed");
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+        }
+        Log.dump(board::toGridString);
+    }
+
+    /**
+     * Stop the running SolveTask, if any. Cells it has already placed stay on the board.
+     */
+    private void cancelSolving() {
+        if (solveTask != null) {
+            solveTask.cancel(false);
+            solveTask = null;
+            cancelButton.setEnabled(false);
+        }
+    }
+
+    /**
+     * Find cells solved by the computer since the last check, show them with blue background
+     * and put them in the history.
+     */
+    private void showCellsSolvedByComputer() {
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                int cellNum = board.getNum(col + 1, row + 1);
+                // check which cell is solved by by computer
+                if (!oldPuzzleCells[col][row]
+                        && cellNum != 0) {
                     Point point = new Point(col + 1, row + 1);
-                    Cell cell = board.cells.get(point);
-                    // check which cell is solved by by computer
-                    if (!oldPuzzleCells[col][row]
-                            && cell.getNum() != 0) {
-                        cellsJButton[col][row].setText(String.valueOf(cell.getNum()));
-                        cellsJButton[col][row].setBackground(BLUE);
-                        cellsJButton[col][row].setForeground(BLACK);
-                        oldPuzzleCells[col][row] = true;
-                        history.add(point);
-                        // check if the puzzle is solved
-                        if (board.isSolved() && !solveAllMode) {
-                            // pop-up asking if user want to solve another
-                            popUpPuzzleSolved();
-                        }
+                    view.setText(col + 1, row + 1, String.valueOf(cellNum));
+                    view.setBackground(col + 1, row + 1, BLUE);
+                    view.setForeground(col + 1, row + 1, BLACK);
+                    if (solveAllMode) {
+                        // cells solved at once fill in one after another
+                        view.reveal(col + 1, row + 1);
+                    }
+                    oldPuzzleCells[col][row] = true;
+                    history.add(point);
+                    // check if the puzzle is solved
+                    if (board.isSolved() && !solveAllMode) {
+                        // pop-up asking if user want to solve another
+                        popUpPuzzleSolved();
                     }
                 }
             }
-            solvedOne = true;
-        } else {
-            System.out.println("Auto solve failed");
-            solvedOne = false;
         }
-        // for debug
-        board.printBoardOnConsole(board.cells);
-        return solvedOne;
+        showConflicts();
     }
 
     /**
@@ -248,25 +298,24 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
      * @param e action event object
      */
     private void manualSolveACell(ActionEvent e) {
+        cancelSolving();
         makeAllCellsWhite();
 
         Object src = e.getSource();
         JButton button = (JButton) src;
-        int selCol = Integer.parseInt(((JButton) src).getName().substring(0, 1));
-        int selRow = Integer.parseInt(((JButton) src).getName().substring(1, 2));
-        int selBlock = rowColToBlockNum(selRow, selCol);
-        if (selectedNum != 0 && board.cells.get(new Point(selCol, selRow)).getNum() == 0) {
-            // if the number selected is legal to enter into the cell
-            if (isNumLegal(Board.RULE.BLOCK, selBlock, selectedNum)
-                    && isNumLegal(Board.RULE.ROW, selRow, selectedNum)
-                    && isNumLegal(Board.RULE.COL, selCol, selectedNum)) {
-                System.out.println("correct");
-                button.setForeground(BLACK);
-                button.setBackground(WHITE);
+        int selCol = Integer.parseInt(button.getName().substring(0, 1));
+        int selRow = Integer.parseInt(button.getName().substring(1, 2));
+        if (selectedNum != 0 && board.getNum(selCol, selRow) == 0) {
+            // if the number selected is the solution, or legal to enter into the cell if the solution is not known
+            if (board.hasSolution() ? board.getSolutionNum(selCol, selRow) == selectedNum
+                    : board.canPlace(selCol, selRow, selectedNum)) {
+                Log.debug(() -> "correct: " + selectedNum + " at " + selCol + "," + selRow);
+                view.setForeground(selCol, selRow, BLACK);
+                view.setBackground(selCol, selRow, WHITE);
                 // actually put the number into Board object
                 Point point = new Point(selCol, selRow);
                 board.solveCell(point, selectedNum);
-                button.setText(String.valueOf(selectedNum));
+                view.setText(selCol, selRow, String.valueOf(selectedNum));
                 oldPuzzleCells[selCol - 1][selRow - 1] = true;
                 history.add(point);
                 // check if the puzzle is solved
@@ -275,14 +324,13 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
                     popUpPuzzleSolved();
                 }
             } else {
-                // for debug
-                System.out.println("incorrect");
-                button.setBackground(RED);
-                button.setText(String.valueOf(selectedNum));
+                Log.debug(() -> "incorrect: " + selectedNum + " at " + selCol + "," + selRow);
+                view.setBackground(selCol, selRow, RED);
+                view.setText(selCol, selRow, String.valueOf(selectedNum));
             }
         }
-        // for debug
-        board.printBoardOnConsole(board.cells);
+        showConflicts();
+        Log.dump(board::toGridString);
     }
 
     /**
@@ -290,18 +338,18 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
      */
     public void undoLastMove() {
         Point lastMove;
+        cancelSolving();
         if (!history.isEmpty()) {
             lastMove = history.remove(history.size() - 1);
             board.undoSolved(lastMove);
 
             // display
             makeAllCellsWhite();
-            JButton button = cellsJButton[lastMove.x - 1][lastMove.y - 1];
-            button.setBackground(WHITE);
-            button.setText("");
+            view.setBackground(lastMove.x, lastMove.y, WHITE);
+            view.setText(lastMove.x, lastMove.y, "");
             oldPuzzleCells[lastMove.x - 1][lastMove.y - 1] = false;
-            // for debug
-            board.printBoardOnConsole(board.cells);
+            showConflicts();
+            Log.dump(board::toGridString);
         }
     }
 
@@ -309,8 +357,11 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
      * Reset the board so it return to the original board. Discard all solved cells by user
      */
     public void resetBoard() {
-        // clear the board
-        board.getPuzzleFromFIle(puzzleLevel, puzzleNum);
+        // clear the board, back to the puzzle as it was loaded
+        cancelSolving();
+        board.reset();
+        // stop a running animation, the new puzzle is shown in the next frame
+        view.flush();
         for (boolean[] row : puzzleCells)
             Arrays.fill(row, false);
         for (boolean[] row : oldPuzzleCells)
@@ -324,13 +375,13 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
         int tempInt;
         for (int row = 0; row < 9; row++) {
             for (int col = 0; col < 9; col++) {
-                tempInt = board.cells.get(new Point(col + 1, row + 1)).getNum();
-                cellsJButton[col][row].setForeground(GREEN);
-                cellsJButton[col][row].setBackground(WHITE);
+                tempInt = board.getNum(col + 1, row + 1);
+                view.setForeground(col + 1, row + 1, GREEN);
+                view.setBackground(col + 1, row + 1, WHITE);
                 cellsJButton[col][row].setFocusPainted(false);
                 // if the cell is empty
                 if (tempInt == 0) {
-                    cellsJButton[col][row].setText("");
+                    view.setText(col + 1, row + 1, "");
                     cellsJButton[col][row].setName(String.valueOf(col + 1) + String.valueOf(row + 1));
                     cellsJButton[col][row].removeActionListener(al[col][row]);
                     // setting ActionListener for every cells
@@ -338,12 +389,13 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
                     cellsJButton[col][row].addActionListener(al[col][row]);
                     // if the cell has number
                 } else {
-                    cellsJButton[col][row].setText(String.valueOf(tempInt));
+                    view.setText(col + 1, row + 1, String.valueOf(tempInt));
                     puzzleCells[col][row] = true;
                     oldPuzzleCells[col][row] = true;
                 }
             }
         }
+        showConflicts();
     }
 
     /**
@@ -359,6 +411,22 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setResizable(false);
 
+        // keep solutions across restarts
+        if (CACHE_FILE.isFile()) {
+            try {
+                cache.load(CACHE_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cache.save(CACHE_FILE);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+
         // Setting UI color and type
         Border greenLine, grayLine;
         grayLine = BorderFactory.createLineBorder(LIGHT_GRAY, 1);
@@ -395,6 +463,7 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
         for (int i = 0; i < 9; i++) {
             paneCenter.add(blocks[i]);
         }
+        view = new BoardView(cellsJButton);
         constraints.fill = GridBagConstraints.BOTH;
         constraints.weighty = 1;
         constraints.weightx = 0.93;
@@ -444,11 +513,25 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
                         }
                         button.setBackground(ORANGE);
                         selectedNum = Integer.parseInt(button.getText());
+                        showConflicts();
                     }
                 });
                 counter++;
             }
         }
+        // typing 1~9 selects a number too
+        for (int k = 0; k < 9; k++) {
+            JButton numButton = selectNumButtons[k];
+            String actionName = "select" + (k + 1);
+            getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                    .put(KeyStroke.getKeyStroke((char) ('1' + k)), actionName);
+            getRootPane().getActionMap().put(actionName, new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    numButton.doClick();
+                }
+            });
+        }
 
         // middle buttons in right grid
         utilityButtonPanel.setLayout(new GridLayout(4, 2, 5, 2));
@@ -489,32 +572,45 @@ public class GUI_Sudoku extends JFrame implements ActionListener {
         solveButton.setFocusPainted(false);
         solveButton.addActionListener(e -> {
             solveAllMode = false;
-            try {
-                autoSolveACell();
-            } catch (CloneNotSupportedException e1) {
-                e1.printStackTrace();
-            }
+            autoSolveACell();
         });
         utilityButtonPanel.add(solveButton);
         // solve all button
         JButton solveAllButton = new JButton("Solve All");
         solveAllButton.setFocusPainted(false);
-        solveAllButton.addActionListener(e -> {
-            try {
-                solveAll();
-            } catch (CloneNotSupportedException e1) {
-                e1.printStackTrace();
-            }
-        });
+        solveAllButton.addActionListener(e -> solveAll());
         utilityButtonPanel.add(solveAllButton);
 
-        // blank panels
-        utilityButtonPanel.add(blankPanel[1]);
-        utilityButtonPanel.add(blankPanel[2]);
+        // Select engine for "Solve All"
+        JLabel selectEngineLabel = new JLabel("Solve all by: ");
+        selectEngineLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        selectEngineLabel.setFont(FONT_DIALOG);
+        utilityButtonPanel.add(selectEngineLabel);
+        JComboBox<String> engineList = new JComboBox<>(new String[]{"techniques", DlxSolver.NAME, BacktrackingSolver.NAME});
+        engineList.setFont(FONT_DIALOG);
+        engineList.setSelectedIndex(0);
+        engineList.addActionListener(e -> {
+            String engine = (String) engineList.getSelectedItem();
+            solver = engineList.getSelectedIndex() == 0 ? null : Solver.forName(engine);
+        });
+        utilityButtonPanel.add(engineList);
+
+        // progress and cancel of the background solve
+        JPanel progressPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        progressPanel.setBorder(new TitledBorder("Solving"));
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressPanel.add(progressBar);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setFocusPainted(false);
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> cancelSolving());
+        progressPanel.add(cancelButton);
+        paneRight.add(progressPanel);
 
         // Fill the board with a puzzle
         getNewPuzzle();
-        board.printBoardOnConsole(board.cells);
+        Log.dump(board::toGridString);
     }
 
     /**
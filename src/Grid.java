@@ -0,0 +1,59 @@
+/**
+ * Grid holds the index tables shared by the primitive board representation.
+ * <p>
+ * A cell is addressed by a single index from 0 to 80, counted row by row:
+ * index = (row - 1) * 9 + (col - 1), where row and col are the 1-based numbers used by Board.
+ * <p>
+ * The 27 units are numbered 0~8 for rows, 9~17 for columns and 18~26 for blocks.
+ */
+public final class Grid {
+    // row, column and block (all 0-based) of every cell
+    public static final int[] ROW = new int[81];
+    public static final int[] COL = new int[81];
+    public static final int[] BLOCK = new int[81];
+
+    // the nine cells of every unit
+    public static final int[][] UNITS = new int[27][9];
+
+    // the 20 cells sharing a row, column or block with every cell
+    public static final int[][] PEERS = new int[81][20];
+
+    static {
+        for (int i = 0; i < 81; i++) {
+            ROW[i] = i / 9;
+            COL[i] = i % 9;
+            BLOCK[i] = (ROW[i] / 3) * 3 + COL[i] / 3;
+        }
+        for (int u = 0; u < 9; u++) {
+            for (int k = 0; k < 9; k++) {
+                UNITS[u][k] = u * 9 + k;
+                UNITS[9 + u][k] = k * 9 + u;
+                UNITS[18 + u][k] = ((u / 3) * 3 + k / 3) * 9 + (u % 3) * 3 + k % 3;
+            }
+        }
+        for (int i = 0; i < 81; i++) {
+            int count = 0;
+            for (int j = 0; j < 81; j++) {
+                if (j != i && (ROW[j] == ROW[i] || COL[j] == COL[i] || BLOCK[j] == BLOCK[i])) {
+                    PEERS[i][count++] = j;
+                }
+            }
+        }
+    }
+
+    // make the class cannot be instantiated
+    private Grid() {
+    }
+
+    /**
+     * Translate the 1-based column and row numbers used by Board to a cell index.
+     *
+     * @param col column number (1~9)
+     * @param row row number (1~9)
+     * @return the cell index (0~80)
+     */
+    public static int index(int col, int row) {
+        return (row - 1) * 9 + (col - 1);
+    }
+
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in buckets of powers of two, so recording is one add
+ * and the histogram never grows, whatever the range of the durations.
+ * <p>
+ * Bucket k holds durations in [2^(k-1), 2^k) nanoseconds, bucket 0 holds 0.
+ * Percentiles are the upper bound of their bucket, so they are at most twice the real value.
+ * It is thread-safe.
+ */
+public final class LatencyHistogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * @param nanos a duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos) & 63);
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * @return the mean duration in nanoseconds, 0 if nothing is recorded
+     */
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    /**
+     * @param percentile the percentile (0~100)
+     * @return the upper bound in nanoseconds of the bucket holding the percentile, 0 if nothing is recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[64];
+        for (int k = 0; k < 64; k++) {
+            snapshot[k] = buckets.get(k);
+            n += snapshot[k];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int k = 0; k < 64; k++) {
+            seen += snapshot[k];
+            if (seen >= rank && snapshot[k] > 0) {
+                return k == 0 ? 0 : k == 63 ? Long.MAX_VALUE : (1L << k) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        for (int k = 0; k < 64; k++) {
+            buckets.set(k, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+    }
+}
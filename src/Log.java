@@ -0,0 +1,236 @@
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Log is the diagnostics facility of the program: leveled messages and board dumps.
+ * <p>
+ * Messages below the level are dropped before they are built: pass a Supplier, i.e.
+ * Log.debug(() -> "puzzle " + num), and the string is only made if DEBUG is on. Hot loops can
+ * test isEnabled() first so that not even the lambda is made.
+ * Enabled messages are put in a bounded queue and written by one daemon thread, so the caller never
+ * waits for I/O. If the queue is full the message is dropped and counted, and the count is written
+ * with the next message.
+ * <p>
+ * Board dumps (see Board.toGridString()) go to a separate trace sink, which is off by default.
+ * <p>
+ * Configuration by system properties:
+ * |-------------------|--------------------------------------------------|
+ * | sudoku.log        | trace, debug, info (default), warn, error or off |
+ * | sudoku.log.file   | file to write messages to, default standard out  |
+ * | sudoku.trace      | file to write board dumps to, "-" for standard out |
+ * |-------------------|--------------------------------------------------|
+ */
+public final class Log {
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    public static final int QUEUE_SIZE = 8192;
+
+    // a message waiting to be written
+    private static final class Record {
+        final long millis;
+        final Level level;
+        final String thread;
+        final String message;
+        // true for a board dump, written to the trace sink
+        final boolean dump;
+
+        Record(Level level, String message, boolean dump) {
+            this.millis = System.currentTimeMillis();
+            this.level = level;
+            this.thread = Thread.currentThread().getName();
+            this.message = message;
+            this.dump = dump;
+        }
+    }
+
+    private static volatile int threshold;
+    private static volatile PrintStream out;
+    private static volatile PrintStream traceSink;
+    private static final BlockingQueue<Record> QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    // records enqueued and not written yet, counted before they are queued so flush() never misses one
+    private static final AtomicLong PENDING = new AtomicLong();
+
+    static {
+        threshold = parseLevel(System.getProperty("sudoku.log", "info")).ordinal();
+        out = openSink(System.getProperty("sudoku.log.file"), System.out);
+        String trace = System.getProperty("sudoku.trace");
+        traceSink = trace == null ? null : openSink(trace, System.out);
+        Thread writer = new Thread(Log::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush));
+    }
+
+    // make the class cannot be instantiated
+    private Log() {
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    private static PrintStream openSink(String name, PrintStream standard) {
+        if (name == null || name.equals("-")) {
+            return standard;
+        }
+        try {
+            return new PrintStream(new BufferedOutputStream(new FileOutputStream(name, true), 1 << 16), false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return standard;
+        }
+    }
+
+    /**
+     * @param level the lowest level to write
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * @param sink where to write board dumps, null to turn them off
+     */
+    public static void setTraceSink(PrintStream sink) {
+        traceSink = sink;
+    }
+
+    /**
+     * @param level a level
+     * @return true if messages of the level are written
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * @return true if board dumps are written
+     */
+    public static boolean isTraceEnabled() {
+        return traceSink != null;
+    }
+
+    public static void log(Level level, Supplier<String> message) {
+        if (level.ordinal() >= threshold) {
+            enqueue(new Record(level, message.get(), false));
+        }
+    }
+
+    public static void log(Level level, String message) {
+        if (level.ordinal() >= threshold) {
+            enqueue(new Record(level, message, false));
+        }
+    }
+
+    public static void trace(Supplier<String> message) {
+        log(Level.TRACE, message);
+    }
+
+    public static void debug(Supplier<String> message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void info(Supplier<String> message) {
+        log(Level.INFO, message);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    /**
+     * Write a board dump (or any multi-line text) to the trace sink, if there is one.
+     *
+     * @param dump the text, only made if the trace sink is on
+     */
+    public static void dump(Supplier<String> dump) {
+        if (traceSink != null) {
+            enqueue(new Record(Level.TRACE, dump.get(), true));
+        }
+    }
+
+    private static void enqueue(Record record) {
+        PENDING.incrementAndGet();
+        if (!QUEUE.offer(record)) {
+            PENDING.decrementAndGet();
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    /**
+     * Wait until every queued message is written, at most one second.
+     */
+    public static void flush() {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (PENDING.get() > 0 && System.nanoTime() < end) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The writer thread: take records and write them, flushing the sinks when the queue is empty.
+     */
+    private static void writeLoop() {
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS");
+        while (true) {
+            Record record;
+            try {
+                record = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long dropped = DROPPED.getAndSet(0);
+            PrintStream log = out;
+            if (dropped > 0) {
+                log.println(time.format(new Date(record.millis)) + " WARN  [log-writer] "
+                        + dropped + " messages dropped, the log queue is full");
+            }
+            PrintStream sink = record.dump ? traceSink : log;
+            if (sink != null) {
+                if (record.dump) {
+                    sink.println(record.message);
+                } else {
+                    sink.println(time.format(new Date(record.millis)) + " "
+                            + String.format("%-5s", record.level) + " [" + record.thread + "] " + record.message);
+                }
+                if (QUEUE.isEmpty()) {
+                    sink.flush();
+                    if (sink != log) {
+                        log.flush();
+                    }
+                }
+            }
+            PENDING.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,361 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PackedPuzzleFile is a binary container of puzzles that stores every cell in 4 bits,
+ * so a puzzle takes 41 bytes instead of the 83 bytes of a line in level[1~5]Puzzles.txt.
+ * <p>
+ * Layout of the file (all numbers are big-endian):
+ * |-------------------------------------------------------------|
+ * | magic "SDKP" (4) | version (1) | level (1) | flags (1) | 0 (1) |
+ * | count (4)        | 0 (4)                                      |
+ * |-------------------------------------------------------------|
+ * | count puzzles, 41 bytes each                                 |
+ * |-------------------------------------------------------------|
+ * | count solutions, 41 bytes each (only if FLAG_SOLUTIONS)      |
+ * |-------------------------------------------------------------|
+ * Cell i is stored in byte i / 2, in the high 4 bits if i is even and in the low 4 bits if i is odd.
+ */
+public final class PackedPuzzleFile implements PuzzleSource {
+    public static final int HEADER_SIZE = 16;
+    public static final int PUZZLE_SIZE = 41;
+    public static final int FLAG_SOLUTIONS = 1;
+
+    private static final int MAGIC = ('S' << 24) | ('D' << 16) | ('K' << 8) | 'P';
+    private static final int VERSION = 1;
+
+    private final MappedByteBuffer buffer;
+    private final int level;
+    private final int flags;
+    private final int count;
+
+    /**
+     * Constructor
+     * it maps the whole file into memory
+     *
+     * @param file the packed file
+     * @throws IOException if the file cannot be read or is not a packed puzzle file
+     */
+    public PackedPuzzleFile(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a packed puzzle file");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + buffer.get(4));
+        }
+        level = buffer.get(5);
+        flags = buffer.get(6);
+        count = buffer.getInt(8);
+        long expected = HEADER_SIZE + (long) count * PUZZLE_SIZE * (hasSolutions() ? 2 : 1);
+        if (buffer.limit() < expected) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    /**
+     * @return the difficulty of the puzzles (1~5), 0 if unknown
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return true if the file contains the solution of every puzzle
+     */
+    public boolean hasSolutions() {
+        return (flags & FLAG_SOLUTIONS) != 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void getPuzzle(int puzzleNum, byte[] nums) {
+        unpack(buffer, HEADER_SIZE + (checkNum(puzzleNum) - 1) * PUZZLE_SIZE, nums);
+    }
+
+    /**
+     * Read the solution of a puzzle into an array of 81 numbers, all 0 if the puzzle has no solution.
+     *
+     * @param puzzleNum a specific puzzle (1~size())
+     * @param nums      the array to fill
+     */
+    public void getSolution(int puzzleNum, byte[] nums) {
+        if (!hasSolutions()) {
+            throw new IllegalStateException("the file does not contain solutions");
+        }
+        unpack(buffer, HEADER_SIZE + (count + checkNum(puzzleNum) - 1) * PUZZLE_SIZE, nums);
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle
+     * @return the same puzzle number if it is in range
+     */
+    private int checkNum(int puzzleNum) {
+        if (puzzleNum < 1 || puzzleNum > count) {
+            throw new IndexOutOfBoundsException("puzzle number should be 1~" + count + ": " + puzzleNum);
+        }
+        return puzzleNum;
+    }
+
+    /**
+     * Pack 81 numbers into 41 bytes.
+     *
+     * @param nums   the numbers (0~9)
+     * @param packed the array to fill, at least 41 bytes
+     */
+    public static void pack(byte[] nums, byte[] packed) {
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
+            int high = nums[2 * i];
+            int low = 2 * i + 1 < 81 ? nums[2 * i + 1] : 0;
+            packed[i] = (byte) ((high << 4) | low);
+        }
+    }
+
+    /**
+     * Unpack 41 bytes of a buffer into 81 numbers.
+     *
+     * @param buffer the buffer
+     * @param offset where the packed puzzle starts
+     * @param nums   the array to fill
+     */
+    static void unpack(ByteBuffer buffer, int offset, byte[] nums) {
+        for (int i = 0; i < PUZZLE_SIZE; i++) {
+            int b = buffer.get(offset + i);
+            nums[2 * i] = (byte) ((b >> 4) & 0xF);
+            if (2 * i + 1 < 81) {
+                nums[2 * i + 1] = (byte) (b & 0xF);
+            }
+        }
+    }
+
+    /**
+     * Parse a line of 81 characters into numbers, '.' and '0' are empty cells.
+     *
+     * @param line the line
+     * @param nums the array to fill
+     * @return false if the line is not a puzzle
+     */
+    public static boolean parseLine(CharSequence line, byte[] nums) {
+        if (line.length() < 81) {
+            return false;
+        }
+        for (int i = 0; i < 81; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                nums[i] = (byte) (c - '0');
+            } else if (c == '.') {
+                nums[i] = 0;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writer writes a packed puzzle file one puzzle at a time.
+     * Solutions are kept in a temporary file and appended after the puzzles when the writer is closed,
+     * so any number of puzzles can be written without holding them in memory.
+     */
+    public static final class Writer implements Closeable {
+        private final File file;
+        private final int level;
+        private final boolean withSolutions;
+        private final RandomAccessFile raf;
+        private final OutputStream out;
+        private final File solutionFile;
+        private final OutputStream solutionOut;
+        private final byte[] packed = new byte[PUZZLE_SIZE];
+        private int count;
+
+        /**
+         * Constructor
+         *
+         * @param file          the file to write
+         * @param level         the difficulty of the puzzles (1~5), 0 if unknown
+         * @param withSolutions true if a solution is given with every puzzle
+         * @throws IOException if the file cannot be written
+         */
+        public Writer(File file, int level, boolean withSolutions) throws IOException {
+            this.file = file;
+            this.level = level;
+            this.withSolutions = withSolutions;
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            // header is written when closing, once the count is known
+            raf.write(new byte[HEADER_SIZE]);
+            out = new BufferedOutputStream(new FileOutputStream(raf.getFD()), 1 << 16);
+            if (withSolutions) {
+                solutionFile = File.createTempFile("solutions", ".tmp");
+                solutionOut = new BufferedOutputStream(new FileOutputStream(solutionFile), 1 << 16);
+            } else {
+                solutionFile = null;
+                solutionOut = null;
+            }
+        }
+
+        /**
+         * Append a puzzle.
+         *
+         * @param puzzle the 81 numbers of the puzzle
+         * @throws IOException if the file cannot be written
+         */
+        public void write(byte[] puzzle) throws IOException {
+            if (withSolutions) {
+                throw new IllegalStateException("a solution is required for every puzzle");
+            }
+            pack(puzzle, packed);
+            out.write(packed);
+            count++;
+        }
+
+        /**
+         * Append a puzzle with its solution.
+         *
+         * @param puzzle   the 81 numbers of the puzzle
+         * @param solution the 81 numbers of the solution
+         * @throws IOException if the file cannot be written
+         */
+        public void write(byte[] puzzle, byte[] solution) throws IOException {
+            if (!withSolutions) {
+                throw new IllegalStateException("the writer is not created with solutions");
+            }
+            pack(puzzle, packed);
+            out.write(packed);
+            pack(solution, packed);
+            solutionOut.write(packed);
+            count++;
+        }
+
+        /**
+         * @return how many puzzles are written so far
+         */
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (withSolutions) {
+                    solutionOut.close();
+                    try (InputStream in = new BufferedInputStream(new FileInputStream(solutionFile))) {
+                        byte[] chunk = new byte[1 << 16];
+                        int read;
+                        while ((read = in.read(chunk)) > 0) {
+                            out.write(chunk, 0, read);
+                        }
+                    }
+                }
+                out.flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).put((byte) VERSION).put((byte) level)
+                        .put((byte) (withSolutions ? FLAG_SOLUTIONS : 0)).put((byte) 0)
+                        .putInt(count).putInt(0);
+                raf.seek(0);
+                raf.write(header.array());
+            } finally {
+                out.close();
+                raf.close();
+                if (solutionFile != null && !solutionFile.delete()) {
+                    solutionFile.deleteOnExit();
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file.getPath();
+        }
+    }
+
+    /**
+     * Convert a text file of 81 characters per line into a packed file, one line at a time.
+     * Lines that are not puzzles (i.e. blank lines) are skipped.
+     *
+     * @param textFile   the text file
+     * @param packedFile the packed file to write
+     * @param level      the difficulty of the puzzles (1~5), 0 if unknown
+     * @return how many puzzles are converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int convert(File textFile, File packedFile, int level) throws IOException {
+        return convert(textFile, packedFile, level, false);
+    }
+
+    /**
+     * Convert a text file of 81 characters per line into a packed file, one line at a time,
+     * and with solutions solve every puzzle with a DlxSolver as it is read. A puzzle without
+     * a solution gets a solution of all 0.
+     *
+     * @param textFile   the text file
+     * @param packedFile the packed file to write
+     * @param level      the difficulty of the puzzles (1~5), 0 if unknown
+     * @param solutions  true to write the solution section
+     * @return how many puzzles are converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int convert(File textFile, File packedFile, int level, boolean solutions) throws IOException {
+        byte[] nums = new byte[81];
+        byte[] solution = new byte[81];
+        DlxSolver solver = solutions ? new DlxSolver() : null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile), 1 << 16);
+             Writer writer = new Writer(packedFile, level, solutions)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!parseLine(line, nums)) {
+                    continue;
+                }
+                if (solutions) {
+                    System.arraycopy(nums, 0, solution, 0, 81);
+                    if (!solver.solve(solution)) {
+                        Arrays.fill(solution, (byte) 0);
+                    }
+                    writer.write(nums, solution);
+                } else {
+                    writer.write(nums);
+                }
+            }
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Convert level files to packed files, with -solutions the solution of every puzzle too.
+     * usage: PackedPuzzleFile [-solutions] [level]...   converts levelNPuzzles.txt to levelNPuzzles.pack
+     * or:    PackedPuzzleFile [-solutions] input.txt output.pack [level]
+     *
+     * @param args see usage
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        boolean solutions = rest.remove("-solutions");
+        if (rest.size() >= 2 && !rest.get(0).matches("\\d")) {
+            int level = rest.size() > 2 ? Integer.parseInt(rest.get(2)) : 0;
+            int count = convert(new File(rest.get(0)), new File(rest.get(1)), level, solutions);
+            System.out.println(rest.get(0) + " -> " + rest.get(1) + ": " + count + " puzzles");
+            return;
+        }
+        for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+            if (!rest.isEmpty() && !rest.contains(String.valueOf(level))) {
+                continue;
+            }
+            File text = PuzzleLibrary.findFile("level" + level + "Puzzles.txt");
+            File packed = new File(text.getParentFile(), "level" + level + "Puzzles.pack");
+            int count = convert(text, packed, level, solutions);
+            System.out.println(text.getName() + " -> " + packed.getName() + ": " + count + " puzzles");
+        }
+    }
+}
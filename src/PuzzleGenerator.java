@@ -0,0 +1,387 @@
+import java.io.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PuzzleGenerator makes new puzzles with a unique solution and grades them.
+ * <p>
+ * A puzzle is made in three steps:
+ * 1. a random full grid: the three diagonal blocks are independent, so they are filled with random
+ * permutations and the rest is solved by a BacktrackingSolver;
+ * 2. clues are removed in random order, and a removal is kept only if the puzzle still has one solution:
+ * a cell whose peers hold the 8 other numbers needs no check, the others are counted up to two
+ * solutions by the BacktrackingSolver, which is faster than DlxSolver on these mostly full grids;
+ * 3. the puzzle is graded by a PuzzleGrader. For a wanted level it is graded after every removal from
+ * GRADE_CLUES clues down instead, and the removal stops at the level.
+ * <p>
+ * Every worker thread has its own solver, grader and random generator. Puzzles are written as soon as
+ * they are made, one 81 characters line each, to levelNPuzzles.txt in the output directory.
+ * <p>
+ * Removing every clue that can be removed gives hard puzzles, so easier levels stop removing at
+ * the number of clues of the bundled level files (see MIN_CLUES).
+ * <p>
+ * A wanted level that MAX_MISSES tries in a row do not reach stops the run with an error, the -clues
+ * do not fit the level.
+ * <p>
+ * usage: PuzzleGenerator [-count N] [-level L] [-clues N] [-threads N] [-out dir] [-seed S]
+ */
+public final class PuzzleGenerator {
+    public static final String USAGE =
+            "usage: PuzzleGenerator [-count N] [-level L] [-clues N] [-threads N] [-out dir] [-seed S]";
+
+    // fewest clues to keep when making a puzzle of level 1~5, close to the bundled level files
+    private static final int[] MIN_CLUES = {0, 45, 40, 34, 0, 0};
+    // a puzzle of a level is graded after every removal from this many clues down,
+    // a few more than the bundled level 4 and 5 puzzles have
+    private static final int GRADE_CLUES = 32;
+    // tries in a row, of all the threads, without a puzzle of the wanted level before giving up:
+    // some -clues cannot give some levels at all, level 1 with 20 clues or level 4 with 60
+    static final int MAX_MISSES = 1000;
+
+    private final BacktrackingSolver solver = new BacktrackingSolver();
+    private final PuzzleGrader grader = new PuzzleGrader();
+    private final SplittableRandom random;
+    private final int[] order = new int[81];
+
+    /**
+     * Constructor
+     *
+     * @param random the random generator of this generator
+     */
+    public PuzzleGenerator(SplittableRandom random) {
+        this.random = random;
+        for (int i = 0; i < 81; i++) {
+            order[i] = i;
+        }
+    }
+
+    /**
+     * Fill a grid with a random complete solution.
+     *
+     * @param grid the array to fill
+     */
+    public void randomSolution(byte[] grid) {
+        java.util.Arrays.fill(grid, (byte) 0);
+        byte[] nums = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int block = 0; block < 9; block += 4) {
+            shuffle(nums);
+            for (int k = 0; k < 9; k++) {
+                grid[Grid.UNITS[18 + block][k]] = nums[k];
+            }
+        }
+        solver.solve(grid);
+    }
+
+    /**
+     * Make a puzzle with a unique solution.
+     *
+     * @param puzzle   the array to fill with the puzzle
+     * @param solution the array to fill with the solution
+     * @param minClues stop removing clues at this many clues, 0 to remove as many as possible
+     */
+    public void generate(byte[] puzzle, byte[] solution, int minClues) {
+        generate(puzzle, solution, minClues, 0);
+    }
+
+    /**
+     * Make a puzzle of a level with a unique solution. Clues are removed as by generate(), but from
+     * GRADE_CLUES clues down the puzzle is graded after every removal: the removal stops as soon as
+     * the puzzle has the level, and a removal that makes it harder than the level is put back.
+     *
+     * @param puzzle   the array to fill with the puzzle
+     * @param solution the array to fill with the solution
+     * @param minClues stop removing clues at this many clues, 0 to remove as many as possible
+     * @param level    the level (1~5), 0 for any level
+     * @return the grade of the puzzle, null if it does not have the level
+     */
+    public PuzzleGrader.Grade generate(byte[] puzzle, byte[] solution, int minClues, int level) {
+        randomSolution(solution);
+        System.arraycopy(solution, 0, puzzle, 0, 81);
+        shuffle(order);
+        int clues = 81;
+        for (int cell : order) {
+            if (clues <= minClues) {
+                break;
+            }
+            byte num = puzzle[cell];
+            puzzle[cell] = 0;
+            if (!isForced(puzzle, cell) && solver.countSolutions(puzzle, 2) != 1) {
+                puzzle[cell] = num;
+                continue;
+            }
+            clues--;
+            if (level != 0 && clues <= GRADE_CLUES) {
+                PuzzleGrader.Grade grade = grader.grade(puzzle);
+                if (grade.level == level) {
+                    return grade;
+                } else if (grade.level > level) {
+                    puzzle[cell] = num;
+                    clues++;
+                }
+            }
+        }
+        if (level == 0) {
+            return null;
+        }
+        PuzzleGrader.Grade grade = grader.grade(puzzle);
+        return grade.level == level ? grade : null;
+    }
+
+    /**
+     * Make a puzzle of a level with the clues of the bundled level files (see MIN_CLUES), trying
+     * up to MAX_MISSES times.
+     *
+     * @param puzzle   the array to fill with the puzzle
+     * @param solution the array to fill with the solution
+     * @param level    the level (1~5)
+     * @return the grade of the puzzle, null if no try reached the level
+     */
+    public PuzzleGrader.Grade generateLevel(byte[] puzzle, byte[] solution, int level) {
+        for (int tries = 0; tries < MAX_MISSES; tries++) {
+            PuzzleGrader.Grade grade = generate(puzzle, solution, MIN_CLUES[level], level);
+            if (grade != null) {
+                return grade;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A cell whose peers hold the 8 other numbers can only get its own number back, so removing it
+     * from a puzzle with a unique solution keeps the solution unique, no search needed.
+     *
+     * @param puzzle the puzzle
+     * @param cell   the cell index, empty in the puzzle
+     * @return true if the peers of the cell hold 8 different numbers
+     */
+    private static boolean isForced(byte[] puzzle, int cell) {
+        int mask = 0;
+        for (int peer : Grid.PEERS[cell]) {
+            if (puzzle[peer] != 0) {
+                mask |= CandidateSet.bit(puzzle[peer]);
+            }
+        }
+        return Integer.bitCount(mask) == 8;
+    }
+
+    /**
+     * @return the grader of this generator
+     */
+    public PuzzleGrader getGrader() {
+        return grader;
+    }
+
+    private void shuffle(byte[] array) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private void shuffle(int[] array) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * @param nums the 81 numbers of a puzzle
+     * @return the puzzle as an 81 characters line
+     */
+    public static String toLine(byte[] nums) {
+        char[] line = new char[81];
+        for (int i = 0; i < 81; i++) {
+            line[i] = (char) ('0' + nums[i]);
+        }
+        return new String(line);
+    }
+
+    /**
+     * The options of a run from the command line, see the class description.
+     */
+    static final class Options {
+        int count = 1000;
+        // 0 for any level
+        int level;
+        // -1 for the default of the level, see MIN_CLUES
+        int minClues = -1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File dir = new File("generated");
+        long seed = System.nanoTime();
+    }
+
+    /**
+     * Read and check the options of a run.
+     *
+     * @param args command line arguments
+     * @return the options
+     * @throws IllegalArgumentException if an option is unknown, has no value or a wrong value
+     */
+    static Options parseOptions(String[] args) {
+        Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException(args[i].startsWith("-")
+                        ? "missing value of " + args[i] : "unknown argument: " + args[i]);
+            }
+            switch (args[i]) {
+                case "-count":
+                    options.count = Integer.parseInt(args[++i]);
+                    break;
+                case "-level":
+                    options.level = Integer.parseInt(args[++i]);
+                    if (options.level < PuzzleLibrary.MIN_LEVEL || options.level > PuzzleLibrary.MAX_LEVEL) {
+                        throw new IllegalArgumentException("level should be 1~5: " + options.level);
+                    }
+                    break;
+                case "-clues":
+                    options.minClues = Integer.parseInt(args[++i]);
+                    if (options.minClues < 0 || options.minClues > 81) {
+                        throw new IllegalArgumentException("clues should be 0~81: " + options.minClues);
+                    }
+                    break;
+                case "-threads":
+                    options.threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    options.dir = new File(args[++i]);
+                    break;
+                case "-seed":
+                    options.seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown argument: " + args[i]);
+            }
+        }
+        if (options.count < 1) {
+            throw new IllegalArgumentException("count should be 1 or more: " + options.count);
+        }
+        if (options.threads < 1) {
+            throw new IllegalArgumentException("threads should be 1 or more: " + options.threads);
+        }
+        return options;
+    }
+
+    /**
+     * Generate puzzles from the command line, see the class description for usage.
+     * A wrong command line prints the usage and exits with status 2.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            generate(options);
+        } catch (IllegalArgumentException e) {
+            // the -clues do not fit the -level
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Generate puzzles into the level files of the output directory.
+     *
+     * @param options the options of the run
+     * @throws IOException              if the output cannot be written
+     * @throws IllegalArgumentException if MAX_MISSES tries in a row give no puzzle of the level
+     */
+    static void generate(Options options) throws IOException, InterruptedException {
+        int count = options.count;
+        int wantedLevel = options.level;
+        int minClues = options.minClues;
+        int threads = options.threads;
+        File dir = options.dir;
+        long seed = options.seed;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+
+        // one appending writer for every level
+        PrintWriter[] writers = new PrintWriter[PuzzleLibrary.MAX_LEVEL + 1];
+        for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+            if (wantedLevel == 0 || wantedLevel == level) {
+                writers[level] = new PrintWriter(new BufferedWriter(
+                        new FileWriter(new File(dir, "level" + level + "Puzzles.txt"), true)));
+            }
+        }
+
+        AtomicInteger made = new AtomicInteger();
+        AtomicInteger misses = new AtomicInteger();
+        int[] perLevel = new int[PuzzleLibrary.MAX_LEVEL + 1];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        final int total = count;
+        final int level = wantedLevel;
+        final int clues = minClues >= 0 ? minClues : MIN_CLUES[wantedLevel];
+        for (int t = 0; t < threads; t++) {
+            PuzzleGenerator generator = new PuzzleGenerator(seeds.split());
+            pool.execute(() -> {
+                byte[] puzzle = new byte[81];
+                byte[] solution = new byte[81];
+                while (made.get() < total && misses.get() < MAX_MISSES) {
+                    PuzzleGrader.Grade grade;
+                    if (level == 0) {
+                        generator.generate(puzzle, solution, clues);
+                        grade = generator.getGrader().grade(puzzle);
+                    } else {
+                        grade = generator.generate(puzzle, solution, clues, level);
+                        if (grade == null) {
+                            misses.incrementAndGet();
+                            continue;
+                        }
+                        misses.set(0);
+                    }
+                    if (made.getAndIncrement() >= total) {
+                        break;
+                    }
+                    PrintWriter writer = writers[grade.level];
+                    synchronized (writer) {
+                        writer.print(toLine(puzzle));
+                        writer.print("\r\n");
+                        perLevel[grade.level]++;
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        for (PrintWriter writer : writers) {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        if (made.get() < total) {
+            throw new IllegalArgumentException("no level " + level + " puzzle in " + MAX_MISSES
+                    + " tries with " + clues + " clues, " + made.get() + " of " + total
+                    + " made; try other -clues");
+        }
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println("generated " + total + " puzzles in " + millis + " ms ("
+                + total * 1000L / millis + " puzzles/s, " + threads + " threads) into " + dir);
+        for (int l = PuzzleLibrary.MIN_LEVEL; l <= PuzzleLibrary.MAX_LEVEL; l++) {
+            if (writers[l] != null) {
+                System.out.println("level " + l + ": " + perLevel[l]);
+            }
+        }
+    }
+}
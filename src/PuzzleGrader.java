@@ -0,0 +1,139 @@
+import java.util.List;
+
+/**
+ * PuzzleGrader grades the difficulty of a puzzle by solving it with a TechniquePipeline
+ * the way a human would, and looking at which techniques are needed.
+ * <p>
+ * The score is the sum of the difficulty of every step, so it grows with the number of empty cells
+ * and with the techniques they need. Puzzles solved by singles only are level 1~3 by score,
+ * puzzles that need pointing pairs, box-line reduction, subsets, fish, XY-Wings or coloring are level 4~5 by score,
+ * and puzzles that need guessing (assumption) or that the techniques cannot solve are level 5.
+ * A grader keeps its own Board, so use one for each thread.
+ */
+public final class PuzzleGrader {
+    /**
+     * The grade of a puzzle.
+     */
+    public static final class Grade {
+        public final boolean solved;
+        public final int level;
+        public final int score;
+        // bit (Technique.ordinal()) is set for every Technique used
+        public final long techniques;
+        public final SolvingTechnique hardest;
+
+        Grade(boolean solved, int level, int score, long techniques, SolvingTechnique hardest) {
+            this.solved = solved;
+            this.level = level;
+            this.score = score;
+            this.techniques = techniques;
+            this.hardest = hardest;
+        }
+
+        @Override
+        public String toString() {
+            return "level " + level + ", score " + score
+                    + ", hardest " + (hardest == null ? "none" : hardest.getName()) + (solved ? "" : ", not solved");
+        }
+    }
+
+    // highest score of a level 1 and a level 2 puzzle that needs singles only,
+    // taken from the average scores of the bundled level files (36, 41, 47, 57, 64)
+    private static final int LEVEL_1_SCORE = 39;
+    private static final int LEVEL_2_SCORE = 44;
+    // highest score of a level 4 puzzle that needs techniques harder than singles
+    private static final int LEVEL_4_SCORE = 80;
+
+    private final Board board = new Board();
+    private final TechniquePipeline pipeline;
+
+    public PuzzleGrader() {
+        this(TechniquePipeline.standard());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param pipeline the techniques used to grade
+     */
+    public PuzzleGrader(TechniquePipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Grade a puzzle.
+     *
+     * @param puzzle the 81 numbers of the puzzle
+     * @return the grade
+     */
+    public Grade grade(byte[] puzzle) {
+        board.setPuzzle(puzzle);
+        int score = 0;
+        long techniques = 0;
+        SolvingTechnique hardest = null;
+        while (!board.isSolved()) {
+            SolvingTechnique technique = pipeline.step(board);
+            if (technique == null) {
+                break;
+            }
+            score += technique.getDifficulty();
+            if (technique instanceof Technique) {
+                techniques |= 1L << ((Technique) technique).ordinal();
+            }
+            if (hardest == null || technique.getDifficulty() > hardest.getDifficulty()) {
+                hardest = technique;
+            }
+        }
+        boolean solved = board.isSolved();
+        return new Grade(solved, levelOf(solved, hardest, score), score, techniques, hardest);
+    }
+
+    /**
+     * Translate the result of solving into a level.
+     *
+     * @param solved  true if the techniques solved the puzzle
+     * @param hardest the hardest technique used
+     * @param score   the sum of difficulties of all steps
+     * @return the level (1~5)
+     */
+    private static int levelOf(boolean solved, SolvingTechnique hardest, int score) {
+        if (!solved) {
+            return 5;
+        }
+        int difficulty = hardest == null ? 0 : hardest.getDifficulty();
+        if (difficulty >= Technique.ASSUMPTION.getDifficulty()) {
+            return 5;
+        } else if (difficulty > Technique.HIDDEN_SINGLE_ROW.getDifficulty()) {
+            return score <= LEVEL_4_SCORE ? 4 : 5;
+        } else if (score <= LEVEL_1_SCORE) {
+            return 1;
+        } else if (score <= LEVEL_2_SCORE) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * @param techniques a mask of Grade.techniques
+     * @return the names of the techniques in the mask, i.e. "naked_single;hidden_single_row"
+     */
+    public static String techniqueNames(long techniques) {
+        StringBuilder names = new StringBuilder();
+        for (Technique technique : Technique.values()) {
+            if ((techniques & (1L << technique.ordinal())) != 0) {
+                if (names.length() > 0) {
+                    names.append(';');
+                }
+                names.append(technique.getName());
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * @return the techniques used to grade, in order
+     */
+    public List<SolvingTechnique> getTechniques() {
+        return pipeline.getTechniques();
+    }
+}
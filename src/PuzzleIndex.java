@@ -0,0 +1,347 @@
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PuzzleIndex is an on-disk hash set of puzzles, used to tell if a puzzle (or any puzzle equivalent
+ * to it under a Symmetry) has been seen before.
+ * <p>
+ * Puzzles are stored as a 64 bits fingerprint of their canonical form (see Canonicalizer) in an open
+ * addressing table with linear probing, memory-mapped from the index file, so a lookup reads one or
+ * two slots of the file whatever the number of puzzles. The table doubles when it is 70% full: the
+ * bigger table is built in a ".grow" file next to the index and then moved over it, so the index
+ * file is always a complete table, even if the program stops while it grows.
+ * Two different puzzles have the same fingerprint with probability about n^2 / 2^65,
+ * which is less than one in 10^5 for 10 million puzzles.
+ * <p>
+ * Layout of the file (all numbers are big-endian):
+ * |-------------------------------------------------------------|
+ * | magic "SDKI" (4) | version (1) | 0 (3)                        |
+ * | capacity (4)     | count (4)                                  |
+ * |-------------------------------------------------------------|
+ * | capacity slots, 8 bytes each, 0 means empty                  |
+ * |-------------------------------------------------------------|
+ * An index is not thread-safe.
+ * <p>
+ * usage: PuzzleIndex [-index file] [-out file] [puzzle file]...
+ * streams the puzzle files (default: the five level files) and writes the puzzles not in the index yet
+ */
+public final class PuzzleIndex implements Closeable {
+    public static final int HEADER_SIZE = 16;
+    public static final int MIN_CAPACITY = 1 << 16;
+
+    private static final int MAGIC = ('S' << 24) | ('D' << 16) | ('K' << 8) | 'I';
+    private static final int VERSION = 1;
+    private static final double MAX_LOAD = 0.7;
+
+    private final File file;
+    private RandomAccessFile raf;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    private final Canonicalizer canonicalizer = new Canonicalizer();
+    private final byte[] canonical = new byte[81];
+
+    /**
+     * Constructor
+     * it opens the index file, or creates it if it does not exist
+     *
+     * @param file the index file
+     * @throws IOException if the file cannot be read or written, or is not an index file
+     */
+    public PuzzleIndex(File file) throws IOException {
+        this.file = file;
+        boolean exists = file.isFile() && file.length() > 0;
+        open(exists ? 0 : MIN_CAPACITY);
+        if (exists) {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a puzzle index");
+            }
+            if (buffer.get(4) != VERSION) {
+                throw new IOException(file + " has unsupported version " + buffer.get(4));
+            }
+            capacity = buffer.getInt(8);
+            count = buffer.getInt(12);
+            if (Integer.bitCount(capacity) != 1 || raf.length() < HEADER_SIZE + (long) capacity * 8) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+    }
+
+    /**
+     * Map the file, with a new empty table if newCapacity is not 0.
+     */
+    private void open(int newCapacity) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        if (newCapacity != 0) {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + (long) newCapacity * 8);
+        }
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+        if (newCapacity != 0) {
+            capacity = newCapacity;
+            count = 0;
+            writeHeader(buffer, capacity, count);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer table, int capacity, int count) {
+        table.putInt(0, MAGIC);
+        table.put(4, (byte) VERSION);
+        table.putInt(8, capacity);
+        table.putInt(12, count);
+    }
+
+    /**
+     * @return how many puzzles are in the index
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Compute the fingerprint of a puzzle, equivalent puzzles have the same fingerprint.
+     *
+     * @param puzzle the 81 numbers of the puzzle (0 means empty)
+     * @return the fingerprint, 0 if the puzzle does not have exactly one solution
+     */
+    public long fingerprint(byte[] puzzle) {
+        if (!canonicalizer.canonicalize(puzzle, canonical)) {
+            return 0;
+        }
+        return hash(canonical);
+    }
+
+    /**
+     * @param nums 81 numbers
+     * @return a 64 bits hash of the numbers, never 0
+     */
+    static long hash(byte[] nums) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < 81; i += 9) {
+            long part = 0;
+            for (int k = i; k < i + 9; k++) {
+                part = part * 10 + nums[k];
+            }
+            h = mix(h ^ part);
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * The finalizer of SplitMix64.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param fingerprint a fingerprint
+     * @return the slot holding the fingerprint, or the empty slot where it should go
+     */
+    private int find(long fingerprint) {
+        int mask = capacity - 1;
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            long value = buffer.getLong(HEADER_SIZE + slot * 8);
+            if (value == 0 || value == fingerprint) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @param fingerprint a fingerprint given by fingerprint()
+     * @return true if the fingerprint is in the index
+     */
+    public boolean contains(long fingerprint) {
+        return fingerprint != 0 && buffer.getLong(HEADER_SIZE + find(fingerprint) * 8) != 0;
+    }
+
+    /**
+     * @param puzzle the 81 numbers of the puzzle (0 means empty)
+     * @return true if the puzzle or an equivalent puzzle is in the index
+     */
+    public boolean contains(byte[] puzzle) {
+        return contains(fingerprint(puzzle));
+    }
+
+    /**
+     * Add a fingerprint to the index.
+     *
+     * @param fingerprint a fingerprint given by fingerprint()
+     * @return false if the fingerprint is already in the index (or is 0)
+     * @throws IOException if the table cannot grow
+     */
+    public boolean add(long fingerprint) throws IOException {
+        if (fingerprint == 0) {
+            return false;
+        }
+        int slot = find(fingerprint);
+        if (buffer.getLong(HEADER_SIZE + slot * 8) != 0) {
+            return false;
+        }
+        buffer.putLong(HEADER_SIZE + slot * 8, fingerprint);
+        count++;
+        buffer.putInt(12, count);
+        if (count > capacity * MAX_LOAD) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Add a puzzle to the index.
+     *
+     * @param puzzle the 81 numbers of the puzzle (0 means empty)
+     * @return false if the puzzle or an equivalent puzzle is already in the index,
+     * or if it does not have exactly one solution
+     * @throws IOException if the table cannot grow
+     */
+    public boolean add(byte[] puzzle) throws IOException {
+        return add(fingerprint(puzzle));
+    }
+
+    /**
+     * Double the table: the fingerprints are added to a new table in the ".grow" file, which is
+     * written to disk and then moved over the index file. If the move fails the old table is kept.
+     */
+    private void grow() throws IOException {
+        if (capacity >= 1 << 27) {
+            throw new IOException(file + " is full");
+        }
+        int newCapacity = capacity * 2;
+        File grown = new File(file.getPath() + ".grow");
+        try (RandomAccessFile out = new RandomAccessFile(grown, "rw")) {
+            out.setLength(0);
+            out.setLength(HEADER_SIZE + (long) newCapacity * 8);
+            MappedByteBuffer table = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, out.length());
+            writeHeader(table, newCapacity, count);
+            int mask = newCapacity - 1;
+            for (int slot = 0; slot < capacity; slot++) {
+                long value = buffer.getLong(HEADER_SIZE + slot * 8);
+                if (value == 0) {
+                    continue;
+                }
+                int newSlot = (int) value & mask;
+                while (table.getLong(HEADER_SIZE + newSlot * 8) != 0) {
+                    newSlot = (newSlot + 1) & mask;
+                }
+                table.putLong(HEADER_SIZE + newSlot * 8, value);
+            }
+            table.force();
+            unmap(table);
+        }
+
+        // the old table has to be unmapped before its file can be replaced, on Windows
+        buffer.force();
+        raf.close();
+        unmap(buffer);
+        buffer = null;
+        try {
+            Files.move(grown.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // the new table if the move is done, the old one otherwise
+            open(0);
+            capacity = buffer.getInt(8);
+        }
+    }
+
+    /**
+     * Unmap a buffer now instead of when it is garbage collected, with Unsafe.invokeCleaner().
+     * If the JDK does not allow it, the mapping stays until the buffer is collected.
+     *
+     * @param mapped the buffer, it must not be used any more
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), mapped);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the garbage collector
+        }
+    }
+
+    /**
+     * Write the table to disk and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        raf.close();
+    }
+
+    /**
+     * Deduplicate puzzle files from the command line, see the class description for usage.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        File indexFile = new File("puzzles.index");
+        File outFile = new File("unique_puzzles.txt");
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-index":
+                    indexFile = new File(args[++i]);
+                    break;
+                case "-out":
+                    outFile = new File(args[++i]);
+                    break;
+                default:
+                    inputs.add(new File(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                inputs.add(PuzzleLibrary.findFile("level" + level + "Puzzles.txt"));
+            }
+        }
+
+        byte[] puzzle = new byte[81];
+        try (PuzzleIndex index = new PuzzleIndex(indexFile);
+             PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outFile, true)))) {
+            for (File input : inputs) {
+                int read = 0;
+                int added = 0;
+                int invalid = 0;
+                long start = System.nanoTime();
+                try (BufferedReader in = new BufferedReader(new FileReader(input), 1 << 16)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (!PackedPuzzleFile.parseLine(line, puzzle)) {
+                            continue;
+                        }
+                        read++;
+                        long fingerprint = index.fingerprint(puzzle);
+                        if (fingerprint == 0) {
+                            invalid++;
+                        } else if (index.add(fingerprint)) {
+                            added++;
+                            out.print(line.substring(0, 81));
+                            out.print("\r\n");
+                        }
+                    }
+                }
+                long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+                System.out.println(input.getName() + ": " + read + " puzzles, " + added + " new, "
+                        + (read - added - invalid) + " duplicates, " + invalid + " without a unique solution, "
+                        + read * 1000L / millis + " puzzles/s");
+            }
+            System.out.println(index.size() + " puzzles in " + indexFile);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * PuzzleLibrary gives access to the puzzles in level[1~5]Puzzles.txt.
+ * <p>
+ * Every line of the files is a puzzle of exactly 81 characters, so a file is memory-mapped once
+ * and any puzzle is read by its offset (puzzleNum - 1) * lineLength without scanning the file again.
+ * The mapped files are shared by every Board and by the GUI.
+ */
+public final class PuzzleLibrary implements PuzzleSource {
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 5;
+
+    // opened libraries, one for each level
+    private static final PuzzleLibrary[] LEVELS = new PuzzleLibrary[MAX_LEVEL + 1];
+
+    private final MappedByteBuffer buffer;
+    // bytes from the start of a puzzle to the start of the next one (81 plus the line break)
+    private final int stride;
+    private final int count;
+
+    /**
+     * Constructor
+     * it maps the whole file into memory
+     *
+     * @param file the puzzle file
+     * @throws IOException if the file cannot be read or is not in the 81 characters per line format
+     */
+    private PuzzleLibrary(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = buffer.limit();
+        if (size < 81) {
+            throw new IOException(file + " does not contain any puzzle");
+        }
+        // find the line break after the first puzzle, it can be "\n" or "\r\n"
+        int end = 81;
+        while (end < size && (buffer.get(end) == '\r' || buffer.get(end) == '\n')) {
+            end++;
+        }
+        stride = end;
+        if (stride == 81 && size > 81) {
+            throw new IOException(file + " is not in the 81 characters per line format");
+        }
+        count = stride == 81 ? 1 : (size - 81) / stride + 1;
+    }
+
+    /**
+     * Get the library of a level, the file is opened on the first call only.
+     *
+     * @param puzzleLevel the difficulty of the puzzle (1~5)
+     * @return the library
+     * @throws IOException if the file cannot be found or read
+     */
+    public static synchronized PuzzleLibrary getLevel(int puzzleLevel) throws IOException {
+        if (puzzleLevel < MIN_LEVEL || puzzleLevel > MAX_LEVEL) {
+            throw new IllegalArgumentException("puzzle level should be 1~5: " + puzzleLevel);
+        }
+        if (LEVELS[puzzleLevel] == null) {
+            LEVELS[puzzleLevel] = new PuzzleLibrary(findFile("level" + puzzleLevel + "Puzzles.txt"));
+        }
+        return LEVELS[puzzleLevel];
+    }
+
+    /**
+     * Try different places to find a file: the working directory and then the relative path.
+     *
+     * @param fileName the name of the file
+     * @return the file
+     * @throws IOException if the file cannot be found
+     */
+    static File findFile(String fileName) throws IOException {
+        File file = new File(System.getProperty("user.dir"), fileName);
+        if (file.isFile()) {
+            return file;
+        }
+        file = new File(fileName);
+        if (file.isFile()) {
+            return file;
+        }
+        throw new IOException("cannot find " + fileName + " in " + System.getProperty("user.dir"));
+    }
+
+    /**
+     * @return how many puzzles are in the library
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Read a puzzle into an array of 81 numbers, 0 means the cell is empty.
+     *
+     * @param puzzleNum a specific puzzle in the file (1~size())
+     * @param nums      the array to fill
+     */
+    @Override
+    public void getPuzzle(int puzzleNum, byte[] nums) {
+        int offset = offsetOf(puzzleNum);
+        for (int i = 0; i < 81; i++) {
+            int c = buffer.get(offset + i) - '0';
+            nums[i] = (byte) (c >= 0 && c <= 9 ? c : 0);
+        }
+    }
+
+    /**
+     * Read a puzzle as the 81 characters line.
+     *
+     * @param puzzleNum a specific puzzle in the file (1~size())
+     * @return the puzzle line
+     */
+    public String getPuzzleString(int puzzleNum) {
+        int offset = offsetOf(puzzleNum);
+        char[] line = new char[81];
+        for (int i = 0; i < 81; i++) {
+            line[i] = (char) buffer.get(offset + i);
+        }
+        return new String(line);
+    }
+
+    /**
+     * The checksum covers the 81 characters of every puzzle in order, not the line breaks, so it
+     * does not change when the file is checked out with other line endings.
+     *
+     * @return the CRC32 of the puzzles
+     */
+    public int checksum() {
+        CRC32 crc = new CRC32();
+        byte[] line = new byte[81];
+        for (int num = 1; num <= count; num++) {
+            int offset = offsetOf(num);
+            for (int i = 0; i < 81; i++) {
+                line[i] = buffer.get(offset + i);
+            }
+            crc.update(line, 0, 81);
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle in the file (1~size())
+     * @return the byte offset of the puzzle
+     */
+    private int offsetOf(int puzzleNum) {
+        if (puzzleNum < 1 || puzzleNum > count) {
+            throw new IndexOutOfBoundsException("puzzle number should be 1~" + count + ": " + puzzleNum);
+        }
+        return (puzzleNum - 1) * stride;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * PuzzleSource is a collection of puzzles that can be read by puzzle number in O(1).
+ * A puzzle is given as an array of 81 numbers counted row by row, 0 means the cell is empty.
+ */
+public interface PuzzleSource {
+    /**
+     * @return how many puzzles are in the source
+     */
+    int size();
+
+    /**
+     * Read a puzzle into an array of 81 numbers.
+     *
+     * @param puzzleNum a specific puzzle (1~size())
+     * @param nums      the array to fill
+     */
+    void getPuzzle(int puzzleNum, byte[] nums);
+}
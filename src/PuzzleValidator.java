@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * PuzzleValidator checks that every puzzle of the level files has exactly one solution.
+ * <p>
+ * Every puzzle is counted with Solver.countSolutions(grid, 2), which stops at the second solution,
+ * so a puzzle with many solutions costs about as much as a unique one. The puzzles of all the levels
+ * are checked in one parallel pass, every thread with its own solver.
+ * <p>
+ * usage: PuzzleValidator [-threads N] [-engine dlx|backtracking] [level]...
+ */
+public final class PuzzleValidator {
+    /**
+     * The result of a validation.
+     */
+    public static final class Report {
+        // puzzles with no solution, one solution and more than one solution, [level]
+        public final int[] noSolution = new int[PuzzleLibrary.MAX_LEVEL + 1];
+        public final int[] unique = new int[PuzzleLibrary.MAX_LEVEL + 1];
+        public final int[] notUnique = new int[PuzzleLibrary.MAX_LEVEL + 1];
+        // "level N puzzle M: ..." for every puzzle that is not unique, in order
+        public final List<String> problems = new ArrayList<>();
+        public long nanos;
+
+        /**
+         * @return true if every puzzle has exactly one solution
+         */
+        public boolean isValid() {
+            return problems.isEmpty();
+        }
+    }
+
+    // make the class cannot be instantiated
+    private PuzzleValidator() {
+    }
+
+    /**
+     * Count the solutions of every puzzle of some levels in one parallel pass.
+     *
+     * @param levels the levels (1~5)
+     * @param engine the name of the Solver, see Solver.forName()
+     * @param pool   the threads to use
+     * @return the report
+     * @throws IOException if a level file cannot be read
+     */
+    public static Report validate(int[] levels, String engine, ForkJoinPool pool) throws IOException {
+        // puzzle k of the pass is puzzle (k - first[j] + 1) of levels[j]
+        int[] first = new int[levels.length + 1];
+        PuzzleLibrary[] libraries = new PuzzleLibrary[levels.length];
+        for (int j = 0; j < levels.length; j++) {
+            libraries[j] = PuzzleLibrary.getLevel(levels[j]);
+            first[j + 1] = first[j] + libraries[j].size();
+        }
+        // solution count (0, 1 or 2) of every puzzle
+        AtomicIntegerArray counts = new AtomicIntegerArray(first[levels.length]);
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> Solver.forName(engine));
+        long start = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, first[levels.length]).parallel().forEach(k -> {
+                int j = 0;
+                while (k >= first[j + 1]) {
+                    j++;
+                }
+                byte[] grid = new byte[81];
+                libraries[j].getPuzzle(k - first[j] + 1, grid);
+                counts.set(k, solvers.get().countSolutions(grid, 2));
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while validating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        Report report = new Report();
+        report.nanos = System.nanoTime() - start;
+        for (int j = 0; j < levels.length; j++) {
+            int level = levels[j];
+            for (int k = first[j]; k < first[j + 1]; k++) {
+                int count = counts.get(k);
+                if (count == 1) {
+                    report.unique[level]++;
+                    continue;
+                }
+                if (count == 0) {
+                    report.noSolution[level]++;
+                } else {
+                    report.notUnique[level]++;
+                }
+                report.problems.add("level " + level + " puzzle " + (k - first[j] + 1) + ": "
+                        + (count == 0 ? "no solution" : "more than one solution")
+                        + " " + libraries[j].getPuzzleString(k - first[j] + 1));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @return every level, 1~5
+     */
+    public static int[] allLevels() {
+        int[] levels = new int[PuzzleLibrary.MAX_LEVEL - PuzzleLibrary.MIN_LEVEL + 1];
+        for (int j = 0; j < levels.length; j++) {
+            levels[j] = PuzzleLibrary.MIN_LEVEL + j;
+        }
+        return levels;
+    }
+
+    /**
+     * Print a report: a line for every level and the throughput on one stream, every problem on another.
+     *
+     * @param report   the report
+     * @param levels   the levels validated
+     * @param engine   the name of the Solver used
+     * @param threads  how many threads were used
+     * @param counters where to print the counters
+     * @param problems where to print the problems
+     */
+    public static void printReport(Report report, int[] levels, String engine, int threads,
+                                   PrintStream counters, PrintStream problems) {
+        int total = 0;
+        for (int level : levels) {
+            int count = report.unique[level] + report.noSolution[level] + report.notUnique[level];
+            total += count;
+            counters.println("level " + level + ": " + count + " puzzles, " + report.unique[level] + " unique, "
+                    + report.notUnique[level] + " not unique, " + report.noSolution[level] + " without a solution");
+        }
+        for (String problem : report.problems) {
+            problems.println(problem);
+        }
+        long millis = Math.max(1, report.nanos / 1000000);
+        counters.println(total + " puzzles in " + millis + " ms (" + total * 1000L / millis + " puzzles/s, "
+                + threads + " threads, " + engine + ")");
+    }
+
+    /**
+     * Validate the level files from the command line, see the class description for usage.
+     * It exits with status 1 if a puzzle is not unique.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String engine = DlxSolver.NAME;
+        List<Integer> levelList = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-engine")) {
+                engine = args[++i];
+            } else {
+                levelList.add(Integer.parseInt(args[i]));
+            }
+        }
+        int[] levels = allLevels();
+        if (!levelList.isEmpty()) {
+            levels = new int[levelList.size()];
+            for (int j = 0; j < levels.length; j++) {
+                levels[j] = levelList.get(j);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Report report = validate(levels, engine, pool);
+        pool.shutdown();
+        printReport(report, levels, engine, threads, System.out, System.out);
+        if (!report.isValid()) {
+            System.exit(1);
+        }
+    }
+}
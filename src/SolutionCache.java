@@ -0,0 +1,294 @@
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SolutionCache keeps the solutions of the last solved puzzles, so hints and "Solve All" on a puzzle
+ * that has been solved once are lookups instead of running the techniques again.
+ * <p>
+ * It is a bounded LRU map keyed by the 81 characters line of the puzzle. Every entry holds the solution
+ * and the order the techniques place the cells in, so hints come in the same order as the techniques
+ * would give them. If the techniques get stuck, the remaining cells are solved by a DlxSolver and
+ * placed in reading order.
+ * <p>
+ * The cache can be saved to and loaded from a text file, one entry per line:
+ * puzzle (81 characters), a space, solution (81 characters), a space and the placement order
+ * as cell indexes (0~80) separated by commas. Entries are written from least to most recently used.
+ * A loaded line is used only if the solution is complete, valid and agrees with the clues, and the
+ * order places every empty cell of the puzzle once.
+ * <p>
+ * One cache can be shared by threads. get() solves a puzzle that is not in the cache outside the
+ * lock, so other threads are not held up; if two threads solve the same puzzle, the first entry
+ * put in the cache is kept.
+ */
+public final class SolutionCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The solution of a puzzle and the order to place its cells in.
+     */
+    public static final class Entry {
+        private final byte[] solution;
+        private final byte[] order;
+
+        Entry(byte[] solution, byte[] order) {
+            this.solution = solution;
+            this.order = order;
+        }
+
+        /**
+         * @param index the cell index (0~80)
+         * @return the number of the cell in the solution
+         */
+        public int getNum(int index) {
+            return solution[index];
+        }
+
+        /**
+         * @return how many cells are empty in the puzzle
+         */
+        public int getPlacementCount() {
+            return order.length;
+        }
+
+        /**
+         * @param k the step (0~getPlacementCount()-1)
+         * @return the index of the cell placed at that step
+         */
+        public int getPlacement(int k) {
+            return order[k];
+        }
+
+        /**
+         * Check that every number placed on a board agrees with the solution.
+         *
+         * @param board the board
+         * @return false if a cell of the board holds a number that is not the solution
+         */
+        public boolean agreesWith(Board board) {
+            for (int i = 0; i < 81; i++) {
+                int num = board.getNum(i % 9 + 1, i / 9 + 1);
+                if (num != 0 && num != solution[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @param board a board that agrees with the solution
+         * @return the index of the next empty cell in placement order, -1 if none is empty
+         */
+        public int nextPlacement(Board board) {
+            for (byte index : order) {
+                if (board.getNum(index % 9 + 1, index / 9 + 1) == 0) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries;
+    // the board, techniques and solver of every thread solving a puzzle
+    private final ThreadLocal<Board> board = ThreadLocal.withInitial(Board::new);
+    private final ThreadLocal<TechniquePipeline> pipeline = ThreadLocal.withInitial(TechniquePipeline::standard);
+    private final ThreadLocal<DlxSolver> solver = ThreadLocal.withInitial(DlxSolver::new);
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor
+     *
+     * @param capacity how many puzzles to keep, the least recently used one is dropped first
+     */
+    public SolutionCache(int capacity) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SolutionCache.Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the solution of a puzzle, solving it if it is not in the cache.
+     *
+     * @param puzzle the 81 numbers of the puzzle (0 means empty)
+     * @return the entry, null if the puzzle has no solution
+     */
+    public Entry get(byte[] puzzle) {
+        String key = PuzzleGenerator.toLine(puzzle);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry;
+            }
+            misses++;
+        }
+        Entry entry = solve(puzzle);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (this) {
+            // another thread may have solved the same puzzle meanwhile
+            Entry first = entries.putIfAbsent(key, entry);
+            return first != null ? first : entry;
+        }
+    }
+
+    /**
+     * Solve a puzzle with the techniques, recording the placement order.
+     */
+    private Entry solve(byte[] puzzle) {
+        Board board = this.board.get();
+        TechniquePipeline pipeline = this.pipeline.get();
+        byte[] nums = puzzle.clone();
+        if (!solver.get().solve(nums)) {
+            return null;
+        }
+        byte[] solution = nums;
+        byte[] before = puzzle.clone();
+        byte[] after = new byte[81];
+        byte[] order = new byte[81];
+        int placed = 0;
+        board.setPuzzle(puzzle);
+        while (!board.isSolved() && pipeline.step(board) != null) {
+            board.getNums(after);
+            for (int i = 0; i < 81; i++) {
+                if (before[i] == 0 && after[i] != 0) {
+                    order[placed++] = (byte) i;
+                }
+            }
+            System.arraycopy(after, 0, before, 0, 81);
+        }
+        // cells left by the techniques, in reading order
+        for (int i = 0; i < 81; i++) {
+            if (before[i] == 0) {
+                order[placed++] = (byte) i;
+            }
+        }
+        byte[] exact = new byte[placed];
+        System.arraycopy(order, 0, exact, 0, placed);
+        return new Entry(solution, exact);
+    }
+
+    /**
+     * @return how many puzzles are in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many get() calls are answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how many get() calls have to solve the puzzle
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Write the cache to a file.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void save(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                StringBuilder line = new StringBuilder(200);
+                line.append(e.getKey()).append(' ').append(PuzzleGenerator.toLine(e.getValue().solution)).append(' ');
+                byte[] order = e.getValue().order;
+                for (int k = 0; k < order.length; k++) {
+                    if (k > 0) {
+                        line.append(',');
+                    }
+                    line.append(order[k]);
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Add the entries of a file written by save() to the cache. Lines that cannot be read are skipped.
+     *
+     * @param file the file
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized void load(File file) throws IOException {
+        byte[] puzzle = new byte[81];
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(" ");
+                byte[] solution = new byte[81];
+                if (parts.length < 2 || !PackedPuzzleFile.parseLine(parts[0], puzzle)
+                        || !PackedPuzzleFile.parseLine(parts[1], solution)) {
+                    continue;
+                }
+                String[] cells = parts.length > 2 && !parts[2].isEmpty() ? parts[2].split(",") : new String[0];
+                byte[] order = new byte[cells.length];
+                try {
+                    for (int k = 0; k < cells.length; k++) {
+                        order[k] = Byte.parseByte(cells[k]);
+                    }
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (isValid(puzzle, solution, order)) {
+                    entries.put(PuzzleGenerator.toLine(puzzle), new Entry(solution, order));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check a loaded entry: a wrong one would give wrong hints, or none at all.
+     *
+     * @param puzzle   the puzzle
+     * @param solution the solution
+     * @param order    the placement order
+     * @return true if the solution is complete, has every number once in every unit and keeps the
+     * clues of the puzzle, and the order has every empty cell of the puzzle exactly once
+     */
+    private static boolean isValid(byte[] puzzle, byte[] solution, byte[] order) {
+        int empty = 0;
+        for (int i = 0; i < 81; i++) {
+            if (solution[i] == 0 || puzzle[i] != 0 && puzzle[i] != solution[i]) {
+                return false;
+            }
+            if (puzzle[i] == 0) {
+                empty++;
+            }
+        }
+        for (int[] unit : Grid.UNITS) {
+            int mask = 0;
+            for (int cell : unit) {
+                mask |= CandidateSet.bit(solution[cell]);
+            }
+            if (mask != CandidateSet.ALL) {
+                return false;
+            }
+        }
+        if (order.length != empty) {
+            return false;
+        }
+        boolean[] placed = new boolean[81];
+        for (byte index : order) {
+            if (index < 0 || index > 80 || puzzle[index] != 0 || placed[index]) {
+                return false;
+            }
+            placed[index] = true;
+        }
+        return true;
+    }
+}
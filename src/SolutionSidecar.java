@@ -0,0 +1,303 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * SolutionSidecar holds the precomputed solution and grade of every puzzle of a level file,
+ * in levelNPuzzles.solutions next to levelNPuzzles.txt, so the solution of a bundled puzzle is
+ * read in O(1) instead of running a solver.
+ * <p>
+ * The file is built once by main(), which solves and grades the puzzles of the level files in parallel.
+ * Every record has a fixed size, so a record is read by its offset like a puzzle of a PuzzleLibrary.
+ * <p>
+ * Layout of the file (all numbers are big-endian):
+ * |-------------------------------------------------------------|
+ * | magic "SDKS" (4) | version (1) | level (1) | 0 (2)            |
+ * | count (4)        | checksum of the puzzles (4)                |
+ * |-------------------------------------------------------------|
+ * | count records, 52 bytes each:                                |
+ * | solution packed as in PackedPuzzleFile (41) | grade level (1) |
+ * | score (2) | techniques, see PuzzleGrader.Grade (8)            |
+ * |-------------------------------------------------------------|
+ * The checksum is PuzzleLibrary.checksum() of the level file it was built from: a sidecar is not
+ * used with a level file that has changed since. The record of a puzzle without a solution is all
+ * zero, see hasSolution().
+ * <p>
+ * usage: SolutionSidecar [-threads N] [level]...
+ */
+public final class SolutionSidecar {
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = PackedPuzzleFile.PUZZLE_SIZE + 11;
+
+    private static final int MAGIC = ('S' << 24) | ('D' << 16) | ('K' << 8) | 'S';
+    // the technique bits move when Technique gains techniques before ASSUMPTION:
+    // version 2 added the subset and locked candidate techniques, version 3 the fish, wing and coloring;
+    // version 4 added the checksum of the puzzles
+    private static final int VERSION = 4;
+
+    // opened sidecars, one for each level, and the levels that have no sidecar file
+    private static final SolutionSidecar[] LEVELS = new SolutionSidecar[PuzzleLibrary.MAX_LEVEL + 1];
+    private static final boolean[] MISSING = new boolean[PuzzleLibrary.MAX_LEVEL + 1];
+
+    private final MappedByteBuffer buffer;
+    private final int level;
+    private final int count;
+    private final int checksum;
+
+    /**
+     * Constructor
+     * it maps the whole file into memory
+     *
+     * @param file the sidecar file
+     * @throws IOException if the file cannot be read or is not a sidecar file
+     */
+    public SolutionSidecar(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a solution sidecar file");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + buffer.get(4));
+        }
+        level = buffer.get(5);
+        count = buffer.getInt(8);
+        checksum = buffer.getInt(12);
+        if (buffer.limit() < HEADER_SIZE + (long) count * RECORD_SIZE) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    /**
+     * @param level the level (1~5)
+     * @return the name of the sidecar file of a level
+     */
+    public static String fileName(int level) {
+        return "level" + level + "Puzzles.solutions";
+    }
+
+    /**
+     * Get the sidecar of a level, the file is opened on the first call only.
+     *
+     * @param puzzleLevel the difficulty of the puzzle (1~5)
+     * @return the sidecar, null if the level has no sidecar file or it does not match the level file
+     */
+    public static synchronized SolutionSidecar forLevel(int puzzleLevel) {
+        if (puzzleLevel < PuzzleLibrary.MIN_LEVEL || puzzleLevel > PuzzleLibrary.MAX_LEVEL
+                || MISSING[puzzleLevel]) {
+            return null;
+        }
+        if (LEVELS[puzzleLevel] == null) {
+            try {
+                File file = new File(System.getProperty("user.dir"), fileName(puzzleLevel));
+                if (!file.isFile()) {
+                    file = new File(fileName(puzzleLevel));
+                }
+                if (!file.isFile()) {
+                    MISSING[puzzleLevel] = true;
+                    return null;
+                }
+                SolutionSidecar sidecar = new SolutionSidecar(file);
+                PuzzleLibrary library = PuzzleLibrary.getLevel(puzzleLevel);
+                if (sidecar.size() != library.size() || sidecar.getChecksum() != library.checksum()) {
+                    throw new IOException(file + " does not match the level file, build it again");
+                }
+                LEVELS[puzzleLevel] = sidecar;
+            } catch (IOException e) {
+                e.printStackTrace();
+                MISSING[puzzleLevel] = true;
+                return null;
+            }
+        }
+        return LEVELS[puzzleLevel];
+    }
+
+    /**
+     * @return the level of the puzzles
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return the checksum of the puzzles the sidecar was built from, see PuzzleLibrary.checksum()
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return how many puzzles are in the sidecar
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * A solution never has an empty cell, so the all zero record of a puzzle without a solution
+     * is told by its first cell.
+     *
+     * @param puzzleNum a specific puzzle (1~size())
+     * @return true if the puzzle has a solution in the sidecar
+     */
+    public boolean hasSolution(int puzzleNum) {
+        return getNum(puzzleNum, 0) != 0;
+    }
+
+    /**
+     * Read the solution of a puzzle.
+     *
+     * @param puzzleNum a specific puzzle (1~size())
+     * @param nums      the array to fill with 81 numbers
+     */
+    public void getSolution(int puzzleNum, byte[] nums) {
+        PackedPuzzleFile.unpack(buffer, offsetOf(puzzleNum), nums);
+    }
+
+    /**
+     * Read one number of the solution of a puzzle.
+     *
+     * @param puzzleNum a specific puzzle (1~size())
+     * @param index     the cell index (0~80)
+     * @return the number of the cell in the solution
+     */
+    public int getNum(int puzzleNum, int index) {
+        int b = buffer.get(offsetOf(puzzleNum) + index / 2);
+        return (index & 1) == 0 ? (b >> 4) & 0xF : b & 0xF;
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle (1~size())
+     * @return the level given by PuzzleGrader (1~5)
+     */
+    public int getGradeLevel(int puzzleNum) {
+        return buffer.get(offsetOf(puzzleNum) + PackedPuzzleFile.PUZZLE_SIZE);
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle (1~size())
+     * @return the difficulty score given by PuzzleGrader
+     */
+    public int getScore(int puzzleNum) {
+        return buffer.getShort(offsetOf(puzzleNum) + PackedPuzzleFile.PUZZLE_SIZE + 1);
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle (1~size())
+     * @return the techniques needed, bit (Technique.ordinal()) is set for every Technique used
+     */
+    public long getTechniques(int puzzleNum) {
+        return buffer.getLong(offsetOf(puzzleNum) + PackedPuzzleFile.PUZZLE_SIZE + 3);
+    }
+
+    /**
+     * @param puzzleNum a specific puzzle (1~size())
+     * @return the byte offset of the record
+     */
+    private int offsetOf(int puzzleNum) {
+        if (puzzleNum < 1 || puzzleNum > count) {
+            throw new IndexOutOfBoundsException("puzzle number should be 1~" + count + ": " + puzzleNum);
+        }
+        return HEADER_SIZE + (puzzleNum - 1) * RECORD_SIZE;
+    }
+
+    /**
+     * Solve and grade every puzzle of a source in parallel and write the sidecar file.
+     *
+     * @param puzzles  the puzzles
+     * @param level    the level written in the header
+     * @param checksum the checksum of the puzzles written in the header, see PuzzleLibrary.checksum()
+     * @param file     the file to write
+     * @param pool     the threads to use
+     * @return how many puzzles have no solution (their record is all zero)
+     * @throws IOException if the file cannot be written
+     */
+    public static int build(PuzzleSource puzzles, int level, int checksum, File file, ForkJoinPool pool)
+            throws IOException {
+        int count = puzzles.size();
+        ByteBuffer records = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+        records.putInt(0, MAGIC);
+        records.put(4, (byte) VERSION);
+        records.put(5, (byte) level);
+        records.putInt(8, count);
+        records.putInt(12, checksum);
+        ThreadLocal<DlxSolver> solvers = ThreadLocal.withInitial(DlxSolver::new);
+        ThreadLocal<PuzzleGrader> graders = ThreadLocal.withInitial(PuzzleGrader::new);
+        int[] failed = new int[1];
+        try {
+            pool.submit(() -> IntStream.rangeClosed(1, count).parallel().forEach(num -> {
+                byte[] puzzle = new byte[81];
+                byte[] solution = new byte[81];
+                byte[] packed = new byte[PackedPuzzleFile.PUZZLE_SIZE];
+                puzzles.getPuzzle(num, puzzle);
+                System.arraycopy(puzzle, 0, solution, 0, 81);
+                if (!solvers.get().solve(solution)) {
+                    synchronized (failed) {
+                        failed[0]++;
+                    }
+                    return;
+                }
+                PuzzleGrader.Grade grade = graders.get().grade(puzzle);
+                PackedPuzzleFile.pack(solution, packed);
+                int offset = HEADER_SIZE + (num - 1) * RECORD_SIZE;
+                // every task writes its own record, absolute puts do not move the shared position
+                for (int i = 0; i < packed.length; i++) {
+                    records.put(offset + i, packed[i]);
+                }
+                records.put(offset + PackedPuzzleFile.PUZZLE_SIZE, (byte) grade.level);
+                records.putShort(offset + PackedPuzzleFile.PUZZLE_SIZE + 1, (short) grade.score);
+                records.putLong(offset + PackedPuzzleFile.PUZZLE_SIZE + 3, grade.techniques);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while building " + file);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(records.array());
+        }
+        return failed[0];
+    }
+
+    /**
+     * Build the sidecar files of the level files from the command line, see the class description for usage.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        java.util.List<Integer> levels = new java.util.ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                levels.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (levels.isEmpty()) {
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                levels.add(level);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        for (int level : levels) {
+            File text = PuzzleLibrary.findFile("level" + level + "Puzzles.txt");
+            File file = new File(text.getParentFile(), fileName(level));
+            long start = System.nanoTime();
+            PuzzleLibrary library = PuzzleLibrary.getLevel(level);
+            int failed = build(library, level, library.checksum(), file, pool);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+            System.out.println(file + ": " + PuzzleLibrary.getLevel(level).size() + " puzzles in " + millis + " ms"
+                    + (failed > 0 ? ", " + failed + " without a solution" : ""));
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,220 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * SolveTask solves cells of a board on a background thread, so the window never freezes
+ * whatever engine is used.
+ * <p>
+ * The task works on a copy of the board. Every cell it solves is published as {index, num} and
+ * placed on the real board on the event dispatch thread, followed by the onPlaced callback,
+ * so the cells show up while the task is still running. Progress (0~100) is the share of the
+ * empty cells solved so far.
+ * <p>
+ * Cells come from the first source that has them:
+ * 1. the precomputed solution of a bundled puzzle (see SolutionSidecar);
+ * 2. the SolutionCache, which solves the puzzle on the first call;
+ * 3. the Solver engine, for "solve all" only;
+ * 4. the TechniquePipeline, step by step.
+ * The task stops when it is cancelled or when its time budget runs out. Both are checked between
+ * two steps, so a step that is running (i.e. one solveByAssumption) is finished first. Cells published
+ * before that are dropped once the task is stale: cancelled, or the board has a new puzzle or was reset
+ * (see Board.getGeneration()).
+ */
+public final class SolveTask extends SwingWorker<Boolean, int[]> {
+    private final Board target;
+    private final Board work;
+    private final boolean all;
+    private final long deadline;
+    private final TechniquePipeline pipeline;
+    private final Solver solver;
+    private final SolutionCache cache;
+    private final Runnable onPlaced;
+    private final int emptyCount;
+    private final int generation;
+    private int placed;
+    private volatile boolean timedOut;
+
+    /**
+     * Constructor
+     *
+     * @param board        the board to solve, it is changed on the event dispatch thread only
+     * @param all          true to solve every empty cell, false to solve one (a hint)
+     * @param budgetMillis time budget of the task
+     * @param pipeline     the techniques, not used by another thread while the task runs
+     * @param solver       the engine for "solve all", null to use the techniques
+     * @param cache        the solution cache, null to skip it
+     * @param onPlaced     called on the event dispatch thread after cells are placed on the board
+     */
+    public SolveTask(Board board, boolean all, long budgetMillis, TechniquePipeline pipeline,
+                     Solver solver, SolutionCache cache, Runnable onPlaced) {
+        this.target = board;
+        this.work = board.clone();
+        this.all = all;
+        this.deadline = System.nanoTime() + budgetMillis * 1000000L;
+        this.pipeline = pipeline;
+        this.solver = solver;
+        this.cache = cache;
+        this.onPlaced = onPlaced;
+        this.emptyCount = work.getEmptyCount();
+        this.generation = board.getGeneration();
+    }
+
+    /**
+     * Called on the event dispatch thread only.
+     *
+     * @return true if the task is cancelled or the board is no longer the one it solves
+     */
+    public boolean isStale() {
+        return isCancelled() || target.getGeneration() != generation;
+    }
+
+    /**
+     * @return true if the task stopped because its time budget ran out
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return false if the task has to stop
+     */
+    private boolean canGoOn() {
+        if (isCancelled()) {
+            return false;
+        }
+        if (System.nanoTime() > deadline) {
+            timedOut = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Solve a cell of the copy and publish it.
+     */
+    private void place(int index, int num) {
+        work.solveCell(index, num);
+        placed++;
+        publish(new int[]{index, num});
+        setProgress(emptyCount == 0 ? 100 : placed * 100 / emptyCount);
+    }
+
+    /**
+     * @return true if at least one cell is solved
+     */
+    @Override
+    protected Boolean doInBackground() {
+        if (work.isSolved()) {
+            return false;
+        }
+        if (work.agreesWithSolution()) {
+            return fromSidecar();
+        }
+        if (cache != null) {
+            byte[] puzzle = new byte[81];
+            work.getOriginalNums(puzzle);
+            SolutionCache.Entry entry = cache.get(puzzle);
+            if (entry != null && entry.agreesWith(work)) {
+                for (int index = entry.nextPlacement(work); index >= 0 && canGoOn(); index = entry.nextPlacement(work)) {
+                    place(index, entry.getNum(index));
+                    if (!all) {
+                        break;
+                    }
+                }
+                return placed > 0;
+            }
+        }
+        if (all && solver != null) {
+            byte[] grid = new byte[81];
+            work.getNums(grid);
+            if (!solver.solve(grid)) {
+                return false;
+            }
+            for (int index = 0; index < 81 && canGoOn(); index++) {
+                if (work.getNum(index % 9 + 1, index / 9 + 1) == 0) {
+                    place(index, grid[index]);
+                }
+            }
+            return placed > 0;
+        }
+        return fromTechniques();
+    }
+
+    /**
+     * Solve from the precomputed solution. A single cell is the empty cell with the fewest
+     * possible numbers, the easiest one to find.
+     */
+    private boolean fromSidecar() {
+        int best = -1;
+        int bestCount = 10;
+        for (int index = 0; index < 81 && canGoOn(); index++) {
+            int col = index % 9 + 1;
+            int row = index / 9 + 1;
+            if (work.getNum(col, row) != 0) {
+                continue;
+            }
+            if (all) {
+                place(index, work.getSolutionNum(col, row));
+            } else if (CandidateSet.count(work.getCandidates(col, row)) < bestCount) {
+                bestCount = CandidateSet.count(work.getCandidates(col, row));
+                best = index;
+            }
+        }
+        if (best >= 0) {
+            place(best, work.getSolutionNum(best % 9 + 1, best / 9 + 1));
+        }
+        return placed > 0;
+    }
+
+    /**
+     * Solve step by step with the techniques, publishing the cells of every step.
+     */
+    private boolean fromTechniques() {
+        byte[] before = new byte[81];
+        byte[] after = new byte[81];
+        work.getNums(before);
+        while (!work.isSolved() && canGoOn()) {
+            if (pipeline.step(work) == null) {
+                break;
+            }
+            work.getNums(after);
+            for (int index = 0; index < 81; index++) {
+                if (before[index] == 0 && after[index] != 0) {
+                    placed++;
+                    publish(new int[]{index, after[index]});
+                }
+            }
+            System.arraycopy(after, 0, before, 0, 81);
+            setProgress(emptyCount == 0 ? 100 : placed * 100 / emptyCount);
+            // a step may only remove possibilities, a hint goes on until a cell is placed
+            if (!all && placed > 0) {
+                break;
+            }
+        }
+        return placed > 0;
+    }
+
+    /**
+     * Place published cells on the real board, skipping cells the user has filled meanwhile.
+     * Nothing is placed once the task is stale.
+     */
+    @Override
+    protected void process(List<int[]> cells) {
+        if (isStale()) {
+            return;
+        }
+        boolean changed = false;
+        for (int[] cell : cells) {
+            int col = cell[0] % 9 + 1;
+            int row = cell[0] / 9 + 1;
+            if (target.getNum(col, row) == 0 && target.canPlace(col, row, cell[1])) {
+                target.solveCell(new Point(col, row), cell[1]);
+                changed = true;
+            }
+        }
+        if (changed) {
+            onPlaced.run();
+        }
+    }
+}
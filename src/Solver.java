@@ -0,0 +1,58 @@
+/**
+ * Solver is an engine that solves a whole puzzle at once, as opposed to the
+ * one-cell-at-a-time techniques in Board.
+ * <p>
+ * A grid is an array of 81 numbers counted row by row, 0 means the cell is empty.
+ * An instance keeps its working memory between calls, so it should be used by one thread at a time.
+ */
+public interface Solver {
+    /**
+     * @return the name of the engine, as accepted by forName()
+     */
+    String getName();
+
+    /**
+     * Solve a grid in place.
+     *
+     * @param grid the puzzle, it is filled with the first solution found
+     * @return false if the puzzle has no solution (the grid is left unchanged)
+     */
+    boolean solve(byte[] grid);
+
+    /**
+     * Count the solutions of a puzzle, stopping as soon as limit solutions are found.
+     * A limit of 2 is enough to tell no solution, a unique solution and many solutions apart.
+     *
+     * @param grid  the puzzle, it is not changed
+     * @param limit the most solutions to count (1 or more)
+     * @return how many solutions the puzzle has, at most limit
+     */
+    int countSolutions(byte[] grid, int limit);
+
+    /**
+     * Check if a puzzle has exactly one solution.
+     *
+     * @param grid the puzzle, it is not changed
+     * @return true if the puzzle has one and only one solution
+     */
+    default boolean isUnique(byte[] grid) {
+        return countSolutions(grid, 2) == 1;
+    }
+
+    /**
+     * Create a solver by its name.
+     *
+     * @param name "dlx" or "backtracking"
+     * @return a new solver
+     */
+    static Solver forName(String name) {
+        switch (name.toLowerCase()) {
+            case DlxSolver.NAME:
+                return new DlxSolver();
+            case BacktrackingSolver.NAME:
+                return new BacktrackingSolver();
+            default:
+                throw new IllegalArgumentException("unknown solver: " + name);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * SolverBenchmark measures throughput and allocation of the Board operations for every level.
+ * <p>
+ * Every benchmark runs warm-up iterations first and then measurement iterations of a fixed time,
+ * cycling through the first puzzles of the level file. It reports operations per second (mean and
+ * error of the iterations) and bytes allocated per operation, read from the thread allocation counter
+ * of the JVM. Operations that change the board work on a copy of a loaded board, restored with
+ * Board.copyFrom() before every call, so the numbers include that copy.
+ * <p>
+ * The same operations are JMH benchmarks in the jmh source set of the Gradle build ("gradle jmh",
+ * see SolverJmhBenchmark), which is the one to trust; this harness needs no build and is kept for
+ * a quick look. Unlike JMH it runs every benchmark in this one JVM, one after another, with no forks: the
+ * profile the JIT gathered for earlier benchmarks stays, so a call site that sees several Board
+ * operations may be compiled differently than in a JVM that runs one. The warm-up is a fixed number
+ * of timed iterations, not a check that compilation has settled, and the only guard against dead
+ * code elimination is the volatile sink. Compare numbers of the same benchmark across runs, and run
+ * a benchmark alone with -filter when the order matters.
+ * <p>
+ * usage: SolverBenchmark [-puzzles N] [-warmup N] [-iterations N] [-time ms] [-filter text] [level]...
+ */
+public final class SolverBenchmark {
+    // results are written here so the JIT cannot drop the work
+    private static volatile long sink;
+
+    private final int warmup;
+    private final int iterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+
+    private SolverBenchmark(int warmup, int iterations, long iterationMillis) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    /**
+     * Run one benchmark and print a line of results.
+     *
+     * @param name      the benchmark name
+     * @param level     the puzzle level
+     * @param puzzles   how many puzzles to cycle through
+     * @param operation the operation, called with the index of the puzzle to use
+     */
+    private void run(String name, int level, int puzzles, IntToLongFunction operation) {
+        double[] opsPerSecond = new double[iterations];
+        long allocated = 0;
+        long operations = 0;
+        for (int iteration = -warmup; iteration < iterations; iteration++) {
+            long ops = 0;
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                sink += operation.applyAsLong((int) (ops % puzzles));
+                ops++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            if (iteration >= 0) {
+                opsPerSecond[iteration] = ops * 1e9 / elapsed;
+                allocated += allocatedBytes() - bytesBefore;
+                operations += ops;
+            }
+        }
+
+        double mean = 0;
+        for (double value : opsPerSecond) {
+            mean += value / iterations;
+        }
+        double variance = 0;
+        for (double value : opsPerSecond) {
+            variance += (value - mean) * (value - mean) / Math.max(1, iterations - 1);
+        }
+        String bytesPerOp = threads == null ? "n/a" : String.format("%.1f", (double) allocated / operations);
+        System.out.println(String.format("%-36s level %d  %14.1f +- %10.1f ops/s  %10s B/op",
+                name, level, mean, Math.sqrt(variance), bytesPerOp));
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, 0 if the JVM cannot tell
+     */
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Run all benchmarks of a level.
+     *
+     * @param level   the puzzle level
+     * @param puzzles how many puzzles of the level to use
+     * @param filter  only run benchmarks whose name contains this text
+     */
+    private void runLevel(int level, int puzzles, String filter) throws IOException {
+        int count = puzzleCount(level, puzzles);
+        for (Map.Entry<String, IntToLongFunction> entry : operations(level, count).entrySet()) {
+            if (entry.getKey().contains(filter)) {
+                run(entry.getKey(), level, count, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param level   the puzzle level
+     * @param puzzles how many puzzles of the level are wanted
+     * @return how many puzzles of the level the benchmarks use
+     * @throws IOException if the level file cannot be read
+     */
+    public static int puzzleCount(int level, int puzzles) throws IOException {
+        return Math.min(puzzles, PuzzleLibrary.getLevel(level).size());
+    }
+
+    /**
+     * Make the benchmarked operations of a level. SolverJmhBenchmark runs the same ones: it is in a
+     * package, so it looks this method up by reflection instead of naming the classes.
+     *
+     * @param level   the puzzle level
+     * @param puzzles how many puzzles of the level to use, at most puzzleCount()
+     * @return the operations by name, in the order they run; each is called with the index of
+     * the puzzle to use (0~puzzles-1)
+     * @throws IOException if the level file cannot be read
+     */
+    public static Map<String, IntToLongFunction> operations(int level, int puzzles) throws IOException {
+        PuzzleLibrary library = PuzzleLibrary.getLevel(level);
+        // a loaded board for every puzzle, and a scratch board that operations may change
+        Board[] loaded = new Board[puzzles];
+        byte[][] grids = new byte[puzzles][81];
+        for (int i = 0; i < puzzles; i++) {
+            loaded[i] = new Board();
+            loaded[i].getPuzzleFromFIle(level, i + 1);
+            library.getPuzzle(i + 1, grids[i]);
+        }
+        Board scratch = new Board();
+        byte[] grid = new byte[81];
+        DlxSolver dlx = new DlxSolver();
+        BacktrackingSolver backtracking = new BacktrackingSolver();
+
+        Map<String, IntToLongFunction> operations = new LinkedHashMap<>();
+        operations.put("getPuzzleFromFIle", i -> {
+            scratch.getPuzzleFromFIle(level, i + 1);
+            return scratch.getNum(1, 1);
+        });
+        operations.put("clone", i -> loaded[i].clone().getNum(1, 1));
+        operations.put("eliminate", i -> {
+            scratch.copyFrom(loaded[i]);
+            scratch.eliminate();
+            return scratch.getCandidates(1, 1);
+        });
+        operations.put("solveSingleSolution", i -> {
+            scratch.copyFrom(loaded[i]);
+            return scratch.solveSingleSolution(81) ? 1 : 0;
+        });
+        operations.put("solveALLRowsSingleCandidate", i -> {
+            scratch.copyFrom(loaded[i]);
+            return scratch.solveALLRowsSingleCandidate() ? 1 : 0;
+        });
+        operations.put("solveALLColsSingleCandidate", i -> {
+            scratch.copyFrom(loaded[i]);
+            return scratch.solveALLColsSingleCandidate() ? 1 : 0;
+        });
+        operations.put("solveAllBlockSingleCandidate", i -> {
+            scratch.copyFrom(loaded[i]);
+            return scratch.solveAllBlockSingleCandidate() ? 1 : 0;
+        });
+        operations.put("solveByAssumption", i -> {
+            scratch.copyFrom(loaded[i]);
+            return Board.solveByAssumption(scratch) ? 1 : 0;
+        });
+        operations.put("solver.dlx", i -> {
+            System.arraycopy(grids[i], 0, grid, 0, 81);
+            return dlx.solve(grid) ? grid[0] : 0;
+        });
+        operations.put("solver.backtracking", i -> {
+            System.arraycopy(grids[i], 0, grid, 0, 81);
+            return backtracking.solve(grid) ? grid[0] : 0;
+        });
+        return operations;
+    }
+
+    /**
+     * Run the benchmarks from the command line, see the class description for usage.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws Exception {
+        int puzzles = 200;
+        int warmup = 3;
+        int iterations = 5;
+        long time = 500;
+        String filter = "";
+        List<Integer> levels = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-puzzles":
+                    puzzles = Integer.parseInt(args[++i]);
+                    break;
+                case "-warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "-iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "-filter":
+                    filter = args[++i];
+                    break;
+                default:
+                    levels.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (levels.isEmpty()) {
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                levels.add(level);
+            }
+        }
+
+        SolverBenchmark benchmark = new SolverBenchmark(warmup, iterations, time);
+        for (int level : levels) {
+            try {
+                benchmark.runLevel(level, puzzles, filter);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+import jdk.jfr.*;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SolverMetrics counts what the human-style solver of Board does, for every thread together:
+ * |--------------|---------------------------------------------------------------|
+ * | placements   | numbers placed by solveCell()                                 |
+ * | eliminations | possibilities removed from cells                              |
+ * | guesses      | assumptions tried by makeAssumption()                         |
+ * | backtracks   | assumptions that are wrong or lead nowhere                    |
+ * | clones       | boards cloned by Board.clone()                                |
+ * |--------------|---------------------------------------------------------------|
+ * and keeps a LatencyHistogram of every technique run by a TechniquePipeline.
+ * <p>
+ * The counters are read over JMX as the MBean "sudoku:type=SolverMetrics" (i.e. with jconsole),
+ * and every technique step and solved puzzle is also a JDK Flight Recorder event
+ * (sudoku.TechniqueStep and sudoku.PipelineSolve), so a batch run can be profiled with
+ * -Dsudoku.metrics=true -XX:StartFlightRecording without attaching a profiler.
+ * <p>
+ * Metrics are off unless the program runs with -Dsudoku.metrics=true: counting every elimination
+ * and timing every technique slows the solver down (BatchSolver on level 1 with one thread solves
+ * about half as many puzzles per second), and the JFR events need the metrics too. ENABLED is a
+ * constant, so when it is off the JIT removes the counting from the solver altogether.
+ */
+public final class SolverMetrics implements SolverMetricsMBean {
+    public static final boolean ENABLED = "true".equals(System.getProperty("sudoku.metrics"));
+    public static final String OBJECT_NAME = "sudoku:type=SolverMetrics";
+
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+    private final LongAdder placements = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+    private final LongAdder guesses = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder clones = new LongAdder();
+    private final Map<String, TechniqueStats> techniques = new ConcurrentHashMap<>();
+
+    // latency and hits of a technique
+    private static final class TechniqueStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder hits = new LongAdder();
+    }
+
+    /**
+     * One application of a technique by TechniquePipeline.step().
+     */
+    @Name("sudoku.TechniqueStep")
+    @Label("Technique Step")
+    @Category("Sudoku")
+    @StackTrace(false)
+    static final class TechniqueEvent extends Event {
+        @Label("Technique")
+        String technique;
+        @Label("Progress")
+        boolean progress;
+        @Label("Cells Placed")
+        int placed;
+    }
+
+    /**
+     * One puzzle solved (or given up) by TechniquePipeline.solve().
+     */
+    @Name("sudoku.PipelineSolve")
+    @Label("Pipeline Solve")
+    @Category("Sudoku")
+    @StackTrace(false)
+    static final class SolveEvent extends Event {
+        @Label("Solved")
+        boolean solved;
+        @Label("Steps")
+        int steps;
+        @Label("Empty Cells Left")
+        int emptyLeft;
+    }
+
+    static {
+        if (ENABLED) {
+            // starting the platform MBean server takes a few hundred ms, keep it off the solving thread
+            Thread register = new Thread(() -> {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }, "metrics-jmx");
+            register.setDaemon(true);
+            register.start();
+        }
+    }
+
+    // make the class cannot be instantiated from outside
+    private SolverMetrics() {
+    }
+
+    /**
+     * @return the metrics of the program
+     */
+    public static SolverMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check if technique steps are recorded as JFR events: metrics are on and a recording wants them.
+     * The event made here to ask does not escape, so the JIT does not allocate it.
+     *
+     * @return true if TechniquePipeline.step() should make a TechniqueEvent for every technique
+     */
+    static boolean isStepEventEnabled() {
+        return ENABLED && new TechniqueEvent().isEnabled();
+    }
+
+    /**
+     * @return true if TechniquePipeline.solve() should make a SolveEvent
+     */
+    static boolean isSolveEventEnabled() {
+        return ENABLED && new SolveEvent().isEnabled();
+    }
+
+    static void placed() {
+        if (ENABLED) {
+            INSTANCE.placements.increment();
+        }
+    }
+
+    static void eliminated(int count) {
+        if (ENABLED && count > 0) {
+            INSTANCE.eliminations.add(count);
+        }
+    }
+
+    static void guessed() {
+        if (ENABLED) {
+            INSTANCE.guesses.increment();
+        }
+    }
+
+    static void backtracked() {
+        if (ENABLED) {
+            INSTANCE.backtracks.increment();
+        }
+    }
+
+    static void cloned() {
+        if (ENABLED) {
+            INSTANCE.clones.increment();
+        }
+    }
+
+    /**
+     * Record one application of a technique.
+     *
+     * @param technique the technique
+     * @param nanos     how long it took
+     * @param progress  true if it made progress
+     */
+    static void technique(SolvingTechnique technique, long nanos, boolean progress) {
+        if (ENABLED) {
+            TechniqueStats stats = INSTANCE.techniques.get(technique.getName());
+            if (stats == null) {
+                stats = INSTANCE.techniques.computeIfAbsent(technique.getName(), k -> new TechniqueStats());
+            }
+            stats.latency.record(nanos);
+            if (progress) {
+                stats.hits.increment();
+            }
+        }
+    }
+
+    @Override
+    public long getPlacements() {
+        return placements.sum();
+    }
+
+    @Override
+    public long getEliminations() {
+        return eliminations.sum();
+    }
+
+    @Override
+    public long getGuesses() {
+        return guesses.sum();
+    }
+
+    @Override
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    @Override
+    public long getClones() {
+        return clones.sum();
+    }
+
+    /**
+     * @param technique the technique name
+     * @return the histogram of the technique, null if it has not run yet
+     */
+    public LatencyHistogram getLatency(String technique) {
+        TechniqueStats stats = techniques.get(technique);
+        return stats == null ? null : stats.latency;
+    }
+
+    @Override
+    public String[] getTechniqueLatencies() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, TechniqueStats> entry : new TreeMap<>(techniques).entrySet()) {
+            LatencyHistogram histogram = entry.getValue().latency;
+            lines.add(String.format("%-22s calls %9d  hits %9d  mean %9.2f us  p50 %9.2f us  p99 %9.2f us  max %9.2f us",
+                    entry.getKey(), histogram.getCount(), entry.getValue().hits.sum(),
+                    histogram.getMeanNanos() / 1000, histogram.getPercentileNanos(50) / 1000.0,
+                    histogram.getPercentileNanos(99) / 1000.0, histogram.getPercentileNanos(100) / 1000.0));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public double getLatencyMicros(String technique, double percentile) {
+        LatencyHistogram histogram = getLatency(technique);
+        return histogram == null ? 0 : histogram.getPercentileNanos(percentile) / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        placements.reset();
+        eliminations.reset();
+        guesses.reset();
+        backtracks.reset();
+        clones.reset();
+        for (TechniqueStats stats : techniques.values()) {
+            stats.latency.reset();
+            stats.hits.reset();
+        }
+    }
+
+    /**
+     * @return the counters and the technique latencies, one item per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("placements ").append(getPlacements())
+                .append(", eliminations ").append(getEliminations())
+                .append(", guesses ").append(getGuesses())
+                .append(", backtracks ").append(getBacktracks())
+                .append(", clones ").append(getClones());
+        for (String line : getTechniqueLatencies()) {
+            sb.append('\n').append(line);
+        }
+        return sb.toString();
+    }
+}
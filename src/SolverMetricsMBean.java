@@ -0,0 +1,32 @@
+/**
+ * The JMX interface of SolverMetrics, registered as "sudoku:type=SolverMetrics".
+ * Counters are totals since the start of the program or the last reset().
+ */
+public interface SolverMetricsMBean {
+    long getPlacements();
+
+    long getEliminations();
+
+    long getGuesses();
+
+    long getBacktracks();
+
+    long getClones();
+
+    /**
+     * @return one line for every technique: calls, hits, mean and percentiles of the latency
+     */
+    String[] getTechniqueLatencies();
+
+    /**
+     * @param technique   the technique name, i.e. "naked_single"
+     * @param percentile  the percentile (0~100)
+     * @return the latency of the percentile in microseconds, rounded up to a power of two nanoseconds
+     */
+    double getLatencyMicros(String technique, double percentile);
+
+    /**
+     * Set all counters and histograms to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,23 @@
+/**
+ * SolvingTechnique is one step of the human-style solver: it looks at the board
+ * and either places a number or removes some possibilities.
+ */
+public interface SolvingTechnique {
+    /**
+     * @return the name of the technique, as accepted by TechniquePipeline.fromNames()
+     */
+    String getName();
+
+    /**
+     * @return how hard the technique is for a human, higher is harder
+     */
+    int getDifficulty();
+
+    /**
+     * Apply the technique once.
+     *
+     * @param board the board to work on
+     * @return false if the technique cannot make any progress on the board
+     */
+    boolean apply(Board board);
+}
@@ -0,0 +1,589 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StreamingPipeline solves a stream of puzzle lines of any length and writes one annotated line
+ * for every puzzle, without holding the input in memory.
+ * <p>
+ * The work is split in stages, every stage has its own threads and hands its output to the next stage
+ * through a bounded queue:
+ * |--------|---------|------------------|-----------------|--------|
+ * | reader | parser  | solvers          | graders         | writer |
+ * | 1      | 1       | threads          | threads, -grade | 1      |
+ * |--------|---------|------------------|-----------------|--------|
+ * The reader reads raw blocks of bytes, the parser cuts them into lines and puzzles and groups the puzzles
+ * in batches, and the writer puts the batches back in input order. A full queue blocks the stage before it,
+ * and the parser needs a permit for every batch in flight, which the writer gives back when the batch is
+ * written. So the memory used is bounded and the pipeline runs at the speed of its slowest stage.
+ * <p>
+ * Lines that are blank are skipped, other lines that are not puzzles (see PackedPuzzleFile.parseLine())
+ * are written as "invalid", so every input puzzle has its output line. Output, with a header line:
+ * puzzle,solution,status,micros[,level,score,techniques]
+ * The status is "solved" or "not solved". With -validate the solutions are counted instead of solved
+ * (see Solver.countSolutions()), the status is "unique", "not unique" or "no solution" and the solution is empty.
+ * <p>
+ * usage: StreamingPipeline [-threads N] [-engine techniques|dlx|backtracking] [-grade] [-validate] [-out file] [file|-]...
+ * without files (or with "-") it reads standard input, without -out it writes standard output.
+ */
+public final class StreamingPipeline {
+    // puzzles in a batch, the unit of work passed between stages
+    public static final int BATCH_SIZE = 256;
+    // batches (or blocks) a queue can hold
+    public static final int QUEUE_CAPACITY = 16;
+    // size of a block read by the reader
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * The counters of a run.
+     */
+    public static final class Stats {
+        public final long puzzles;
+        public final long invalid;
+        // puzzles solved, or puzzles with a unique solution when validating
+        public final long solved;
+        public final long nanos;
+        public final boolean validated;
+
+        Stats(long puzzles, long invalid, long solved, long nanos, boolean validated) {
+            this.puzzles = puzzles;
+            this.invalid = invalid;
+            this.solved = solved;
+            this.nanos = nanos;
+            this.validated = validated;
+        }
+
+        /**
+         * @return puzzles (valid or not) per second
+         */
+        public long getPuzzlesPerSecond() {
+            return nanos == 0 ? 0 : puzzles * 1000000000L / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return puzzles + " puzzles, " + solved + (validated ? " unique, " : " solved, ")
+                    + (puzzles - invalid - solved) + (validated ? " not unique, " : " not solved, ")
+                    + invalid + " invalid in " + nanos / 1000000 + " ms (" + getPuzzlesPerSecond() + " puzzles/s)";
+        }
+    }
+
+    // a puzzle line on its way through the stages
+    private static final class Job {
+        final byte[] line = new byte[81];
+        final byte[] puzzle = new byte[81];
+        boolean valid;
+        byte[] solution;
+        boolean solved;
+        // solutions counted up to 2, when validating
+        int solutions;
+        long nanos;
+        PuzzleGrader.Grade grade;
+    }
+
+    // puzzles in input order, seq counts the batches from 0
+    private static final class Batch {
+        final long seq;
+        final List<Job> jobs;
+
+        Batch(long seq, List<Job> jobs) {
+            this.seq = seq;
+            this.jobs = jobs;
+        }
+    }
+
+    // end of stream marks
+    private static final byte[] END_BLOCK = new byte[0];
+    private static final Batch END = new Batch(-1, null);
+
+    private final String engine;
+    private final int threads;
+    private final boolean grade;
+    private final boolean validate;
+
+    private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> solved = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<Batch> graded = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Semaphore inFlight;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile Throwable failure;
+    private final AtomicLong puzzleCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong solvedCount = new AtomicLong();
+
+    /**
+     * Constructor
+     * a pipeline runs once
+     *
+     * @param engine  "techniques" for the TechniquePipeline, or a Solver name
+     * @param threads how many solver threads, and grader threads
+     * @param grade   true to grade every puzzle with PuzzleGrader
+     */
+    public StreamingPipeline(String engine, int threads, boolean grade) {
+        this(engine, threads, grade, false);
+    }
+
+    /**
+     * Constructor
+     * a pipeline runs once
+     *
+     * @param engine   "techniques" for the TechniquePipeline, or a Solver name
+     * @param threads  how many solver threads, and grader threads
+     * @param grade    true to grade every puzzle with PuzzleGrader
+     * @param validate true to count the solutions instead of solving, with DlxSolver for "techniques"
+     */
+    public StreamingPipeline(String engine, int threads, boolean grade, boolean validate) {
+        if (validate && BatchSolver.TECHNIQUES.equals(engine)) {
+            engine = DlxSolver.NAME;
+        }
+        if (!BatchSolver.TECHNIQUES.equals(engine)) {
+            // fail now on a wrong engine name instead of in every worker
+            Solver.forName(engine);
+        }
+        this.engine = engine;
+        this.threads = Math.max(1, threads);
+        this.grade = grade;
+        this.validate = validate;
+        // every queue full, plus one batch in every stage thread
+        this.inFlight = new Semaphore(QUEUE_CAPACITY * 3 + this.threads * 2 + 2);
+    }
+
+    /**
+     * Stream puzzles from an input to an output. The streams are not closed, the output is flushed.
+     *
+     * @param in  the puzzle lines
+     * @param out where to write the results
+     * @return the counters
+     * @throws IOException if reading or writing fails
+     */
+    public Stats run(InputStream in, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        start("reader", () -> read(in));
+        start("parser", this::parse);
+        AtomicInteger solvers = new AtomicInteger(threads);
+        BlockingQueue<Batch> solverOut = grade ? solved : graded;
+        for (int t = 0; t < threads; t++) {
+            start("solver-" + t, () -> work(parsed, solverOut, solvers, false));
+        }
+        if (grade) {
+            AtomicInteger graders = new AtomicInteger(threads);
+            for (int t = 0; t < threads; t++) {
+                start("grader-" + t, () -> work(solved, graded, graders, true));
+            }
+        }
+        start("writer", () -> write(out));
+        // from the writer back to the reader, which is not waited for after a failure
+        // because a read of standard input cannot be interrupted
+        for (int k = workers.size() - 1; k >= 0; k--) {
+            try {
+                if (k > 0 || failure == null) {
+                    workers.get(k).join();
+                }
+            } catch (InterruptedException e) {
+                fail(e);
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw new IllegalStateException("pipeline failed", failure);
+        }
+        return new Stats(puzzleCount.get(), invalidCount.get(), solvedCount.get(), System.nanoTime() - start, validate);
+    }
+
+    /**
+     * A stage body, which may throw.
+     */
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    private synchronized void start(String name, StageBody body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                // stopped by fail()
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }, "pipeline-" + name);
+        thread.setDaemon(name.equals("reader"));
+        workers.add(thread);
+        thread.start();
+        if (failure != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Stop every stage after a failure, the first failure is reported by run().
+     */
+    private synchronized void fail(Throwable t) {
+        if (failure == null) {
+            failure = t;
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reader stage: raw blocks of the input.
+     */
+    private void read(InputStream in) throws IOException, InterruptedException {
+        while (true) {
+            byte[] buffer = new byte[BLOCK_SIZE];
+            int size = in.read(buffer);
+            if (size < 0) {
+                break;
+            }
+            if (size > 0) {
+                blocks.put(size == BLOCK_SIZE ? buffer : Arrays.copyOf(buffer, size));
+            }
+        }
+        blocks.put(END_BLOCK);
+    }
+
+    /**
+     * Parser stage: cut blocks into lines, a line can go over two blocks.
+     */
+    private void parse() throws InterruptedException {
+        byte[] line = new byte[128];
+        int lineSize = 0;
+        long seq = 0;
+        List<Job> jobs = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            byte[] block = blocks.take();
+            if (block == END_BLOCK) {
+                break;
+            }
+            for (byte b : block) {
+                if (b == '\n' || b == '\r') {
+                    if (lineSize > 0) {
+                        jobs.add(parseLine(line, lineSize));
+                        lineSize = 0;
+                        if (jobs.size() == BATCH_SIZE) {
+                            inFlight.acquire();
+                            parsed.put(new Batch(seq++, jobs));
+                            jobs = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                } else {
+                    if (lineSize == line.length) {
+                        line = Arrays.copyOf(line, lineSize * 2);
+                    }
+                    line[lineSize++] = b;
+                }
+            }
+        }
+        if (lineSize > 0) {
+            jobs.add(parseLine(line, lineSize));
+        }
+        if (!jobs.isEmpty()) {
+            inFlight.acquire();
+            parsed.put(new Batch(seq, jobs));
+        }
+        parsed.put(END);
+    }
+
+    /**
+     * Parse a line like PackedPuzzleFile.parseLine(), without making a String of it.
+     */
+    private static Job parseLine(byte[] line, int size) {
+        Job job = new Job();
+        System.arraycopy(line, 0, job.line, 0, Math.min(81, size));
+        job.valid = size >= 81;
+        for (int i = 0; i < 81 && job.valid; i++) {
+            byte c = line[i];
+            if (c >= '0' && c <= '9') {
+                job.puzzle[i] = (byte) (c - '0');
+            } else if (c != '.') {
+                job.valid = false;
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Solver or grader stage. The last thread of a stage to see the end mark passes it on.
+     *
+     * @param from    input queue
+     * @param to      output queue
+     * @param running threads of the stage still running
+     * @param grading true for a grader, false for a solver
+     */
+    private void work(BlockingQueue<Batch> from, BlockingQueue<Batch> to, AtomicInteger running, boolean grading)
+            throws InterruptedException {
+        TechniquePipeline pipeline = grading || !BatchSolver.TECHNIQUES.equals(engine) ? null : TechniquePipeline.standard();
+        Board board = pipeline == null ? null : new Board();
+        Solver solver = grading || pipeline != null ? null : Solver.forName(engine);
+        PuzzleGrader grader = grading ? new PuzzleGrader() : null;
+        while (true) {
+            Batch batch = from.take();
+            if (batch == END) {
+                // leave the mark for the other threads of the stage
+                from.put(END);
+                if (running.decrementAndGet() == 0) {
+                    to.put(END);
+                }
+                return;
+            }
+            for (Job job : batch.jobs) {
+                if (!job.valid) {
+                    continue;
+                }
+                if (grading) {
+                    job.grade = grader.grade(job.puzzle);
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (validate) {
+                    job.solutions = solver.countSolutions(job.puzzle, 2);
+                    job.solved = job.solutions == 1;
+                    job.nanos = System.nanoTime() - start;
+                    continue;
+                }
+                job.solution = new byte[81];
+                if (pipeline != null) {
+                    board.setPuzzle(job.puzzle);
+                    pipeline.solve(board);
+                    job.solved = board.isSolved();
+                    board.getNums(job.solution);
+                } else {
+                    System.arraycopy(job.puzzle, 0, job.solution, 0, 81);
+                    job.solved = solver.solve(job.solution);
+                }
+                job.nanos = System.nanoTime() - start;
+            }
+            to.put(batch);
+        }
+    }
+
+    /**
+     * Writer stage: write batches in input order.
+     */
+    private void write(OutputStream stream) throws IOException, InterruptedException {
+        BufferedOutputStream out = new BufferedOutputStream(stream, BLOCK_SIZE);
+        out.write(("puzzle,solution,status,micros" + (grade ? ",level,score,techniques" : "") + "\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        // batches that came before their turn
+        Map<Long, Batch> waiting = new HashMap<>();
+        long next = 0;
+        StringBuilder sb = new StringBuilder(256);
+        byte[] bytes = new byte[256];
+        while (true) {
+            Batch batch = graded.take();
+            if (batch == END) {
+                break;
+            }
+            waiting.put(batch.seq, batch);
+            while ((batch = waiting.remove(next)) != null) {
+                for (Job job : batch.jobs) {
+                    sb.setLength(0);
+                    appendLine(sb, job);
+                    if (bytes.length < sb.length()) {
+                        bytes = new byte[sb.length() * 2];
+                    }
+                    for (int i = 0; i < sb.length(); i++) {
+                        bytes[i] = (byte) sb.charAt(i);
+                    }
+                    out.write(bytes, 0, sb.length());
+                }
+                next++;
+                inFlight.release();
+            }
+        }
+        out.flush();
+    }
+
+    private void appendLine(StringBuilder sb, Job job) {
+        puzzleCount.incrementAndGet();
+        for (byte b : job.line) {
+            if (b != 0) {
+                sb.append(b == ',' ? ' ' : (char) (b & 0x7F));
+            }
+        }
+        sb.append(',');
+        if (!job.valid) {
+            invalidCount.incrementAndGet();
+            sb.append(",invalid,0");
+        } else {
+            if (job.solved) {
+                solvedCount.incrementAndGet();
+            }
+            if (validate) {
+                sb.append(job.solutions == 1 ? ",unique," : job.solutions == 0 ? ",no solution," : ",not unique,");
+            } else {
+                if (job.solved) {
+                    for (byte num : job.solution) {
+                        sb.append((char) ('0' + num));
+                    }
+                }
+                sb.append(job.solved ? ",solved," : ",not solved,");
+            }
+            sb.append(job.nanos / 1000);
+        }
+        if (grade) {
+            if (job.grade == null) {
+                sb.append(",,,");
+            } else {
+                sb.append(',').append(job.grade.level).append(',').append(job.grade.score)
+                        .append(',').append(PuzzleGrader.techniqueNames(job.grade.techniques));
+            }
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Stream puzzle files from the command line, see the class description for usage.
+     * The counters are printed on standard error, so standard output can hold the results.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String engine = BatchSolver.TECHNIQUES;
+        boolean grade = false;
+        boolean validate = false;
+        String outFile = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-engine":
+                    engine = args[++i];
+                    break;
+                case "-grade":
+                    grade = true;
+                    break;
+                case "-validate":
+                    validate = true;
+                    break;
+                case "-out":
+                    outFile = args[++i];
+                    break;
+                default:
+                    inputs.add(args[i]);
+            }
+        }
+        System.err.println(stream(inputs, outFile, new StreamingPipeline(engine, threads, grade, validate)));
+    }
+
+    /**
+     * Stream some inputs, one after the other, to one output.
+     *
+     * @param inputs   file names, "-" or no name for standard input
+     * @param outFile  the output file, null for standard output
+     * @param pipeline the pipeline to run
+     * @return the counters of all the inputs
+     * @throws IOException if reading or writing fails
+     */
+    public static Stats stream(List<String> inputs, String outFile, StreamingPipeline pipeline) throws IOException {
+        try (InputStream in = openInputs(inputs)) {
+            OutputStream out = outFile == null ? System.out : new FileOutputStream(outFile);
+            try {
+                return pipeline.run(in, out);
+            } finally {
+                if (outFile != null) {
+                    out.close();
+                } else {
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Open some inputs as a single stream, with a line break after every input.
+     * Files are opened when the stream gets to them and closed when it leaves them, so only one
+     * file is open at a time. A missing file is reported before anything is read.
+     *
+     * @param inputs file names, "-" or no name for standard input, which is not closed with the stream
+     * @return the stream
+     * @throws FileNotFoundException if a file does not exist
+     */
+    public static InputStream openInputs(List<String> inputs) throws FileNotFoundException {
+        List<String> names = inputs.isEmpty() ? Collections.singletonList("-") : inputs;
+        for (String name : names) {
+            if (!name.equals("-") && !new File(name).isFile()) {
+                throw new FileNotFoundException(name + " (No such file)");
+            }
+        }
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            // the next input, a line break goes between two inputs
+            private int next;
+            private boolean lineBreak;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < names.size();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (next >= names.size()) {
+                    throw new NoSuchElementException();
+                }
+                if (lineBreak) {
+                    lineBreak = false;
+                    return new ByteArrayInputStream(new byte[]{'\n'});
+                }
+                String name = names.get(next++);
+                lineBreak = next < names.size();
+                if (name.equals("-")) {
+                    return new FilterInputStream(System.in) {
+                        @Override
+                        public void close() {
+                            // keep standard input open
+                        }
+                    };
+                }
+                try {
+                    return new FileInputStream(name);
+                } catch (FileNotFoundException e) {
+                    // removed since the check, nextElement() cannot throw it: the next read() does
+                    return new FailedInputStream(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * The stream of an input that cannot be opened: reading it throws the exception of opening it.
+     */
+    private static final class FailedInputStream extends InputStream {
+        private final IOException exception;
+
+        FailedInputStream(IOException exception) {
+            this.exception = exception;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw exception;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * SudokuCli is the command line entry point of the program, it needs no display.
+ * <p>
+ * Every command reads puzzle files, one puzzle per line (see StreamingPipeline), or standard input
+ * for "-" or no file, and prints its counters and throughput on standard error:
+ * |----------|-----------------------------------------------------------------------------|
+ * | solve    | solve every puzzle, write puzzle,solution,status,micros                     |
+ * | grade    | solve and grade every puzzle, with level,score,techniques                   |
+ * | validate | count the solutions of every puzzle, the level files if there is no file    |
+ * | generate | make new puzzles, the options of PuzzleGenerator                            |
+ * | bench    | solve the files with every engine and compare puzzles/s, the level files    |
+ * |          | if there is no file                                                         |
+ * |----------|-----------------------------------------------------------------------------|
+ * validate exits with status 1 if a puzzle is invalid or does not have exactly one solution,
+ * and a wrong command line exits with status 2.
+ * <p>
+ * usage: SudokuCli solve|grade|validate|bench [-engine techniques|dlx|backtracking] [-threads N]
+ * [-out file] [-rounds N] [file|-]...
+ * usage: SudokuCli generate [-count N] [-level L] [-clues N] [-threads N] [-out dir] [-seed S]
+ */
+public final class SudokuCli {
+    public static final String USAGE = "usage: SudokuCli solve|grade|validate|bench"
+            + " [-engine techniques|dlx|backtracking] [-threads N] [-out file] [-rounds N] [file|-]...\n"
+            + "       SudokuCli generate [-count N] [-level L] [-clues N] [-threads N] [-out dir] [-seed S]";
+
+    // engines compared by bench when there is no -engine
+    private static final String[] ENGINES = {BatchSolver.TECHNIQUES, DlxSolver.NAME, BacktrackingSolver.NAME};
+
+    private String engine;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String outFile;
+    private int rounds = 3;
+    private final List<String> inputs = new ArrayList<>();
+
+    // make the class cannot be instantiated from outside
+    private SudokuCli() {
+    }
+
+    /**
+     * Run a command, see the class description for usage.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            fail("missing command");
+        }
+        String command = args[0];
+        String[] rest = Arrays.copyOfRange(args, 1, args.length);
+        if (command.equals("generate")) {
+            try {
+                PuzzleGenerator.generate(PuzzleGenerator.parseOptions(rest));
+            } catch (IllegalArgumentException e) {
+                // a wrong option, or -clues that do not fit the -level
+                fail(e.getMessage());
+            }
+            return;
+        }
+
+        SudokuCli cli = new SudokuCli();
+        cli.parse(rest);
+        switch (command) {
+            case "solve":
+                cli.stream(false, false);
+                break;
+            case "grade":
+                cli.stream(true, false);
+                break;
+            case "validate":
+                if (!cli.validate()) {
+                    System.exit(1);
+                }
+                break;
+            case "bench":
+                cli.bench();
+                break;
+            case "-h":
+            case "-help":
+            case "help":
+                System.out.println(USAGE);
+                break;
+            default:
+                fail("unknown command " + command);
+        }
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    private void parse(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-engine":
+                        engine = args[++i];
+                        // fail now on a wrong engine name instead of in the middle of a run
+                        if (!BatchSolver.TECHNIQUES.equals(engine)) {
+                            Solver.forName(engine);
+                        }
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-out":
+                        outFile = args[++i];
+                        break;
+                    case "-rounds":
+                        rounds = Integer.parseInt(args[++i]);
+                        if (rounds < 1) {
+                            fail("-rounds should be at least 1");
+                        }
+                        break;
+                    default:
+                        if (args[i].length() > 1 && args[i].startsWith("-")) {
+                            fail("unknown option " + args[i]);
+                        }
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            fail("missing value of " + args[args.length - 1]);
+        } catch (IllegalArgumentException e) {
+            // a wrong number or engine name
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * solve, grade and validate with files: stream the inputs through a StreamingPipeline.
+     *
+     * @return the counters
+     */
+    private StreamingPipeline.Stats stream(boolean grade, boolean validate) throws IOException {
+        StreamingPipeline pipeline = new StreamingPipeline(engine == null ? BatchSolver.TECHNIQUES : engine,
+                threads, grade, validate);
+        StreamingPipeline.Stats stats = StreamingPipeline.stream(inputs, outFile, pipeline);
+        System.err.println(stats);
+        return stats;
+    }
+
+    /**
+     * validate: the inputs, or every level file with a PuzzleValidator if there is no input.
+     *
+     * @return true if every puzzle has exactly one solution
+     */
+    private boolean validate() throws IOException {
+        if (!inputs.isEmpty()) {
+            StreamingPipeline.Stats stats = stream(false, true);
+            return stats.invalid == 0 && stats.solved == stats.puzzles;
+        }
+        String name = engine == null || BatchSolver.TECHNIQUES.equals(engine) ? DlxSolver.NAME : engine;
+        int[] levels = PuzzleValidator.allLevels();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        PuzzleValidator.Report report = PuzzleValidator.validate(levels, name, pool);
+        pool.shutdown();
+        // the counters go with the other counters of the CLI, the problems are the output
+        PuzzleValidator.printReport(report, levels, name, threads, System.err, System.out);
+        return report.isValid();
+    }
+
+    /**
+     * bench: solve the inputs with every engine, one warm-up round and then the measured rounds.
+     * The inputs are read into memory first and the results are thrown away, so neither the disk
+     * nor the output is measured.
+     */
+    private void bench() throws IOException {
+        List<String> names = new ArrayList<>(inputs);
+        if (names.isEmpty()) {
+            for (int level = PuzzleLibrary.MIN_LEVEL; level <= PuzzleLibrary.MAX_LEVEL; level++) {
+                names.add(PuzzleLibrary.findFile("level" + level + "Puzzles.txt").getPath());
+            }
+        }
+        byte[] data;
+        try (InputStream in = StreamingPipeline.openInputs(names)) {
+            data = in.readAllBytes();
+        }
+        String[] engines = engine == null ? ENGINES : new String[]{engine};
+        for (String name : engines) {
+            double best = 0;
+            double total = 0;
+            StreamingPipeline.Stats stats = null;
+            for (int round = 0; round <= rounds; round++) {
+                stats = new StreamingPipeline(name, threads, false)
+                        .run(new ByteArrayInputStream(data), OutputStream.nullOutputStream());
+                // round 0 is the warm-up
+                if (round > 0) {
+                    best = Math.max(best, stats.getPuzzlesPerSecond());
+                    total += stats.getPuzzlesPerSecond();
+                }
+            }
+            System.err.println(String.format("%-12s %8d puzzles %8d solved  mean %10.0f puzzles/s  best %10.0f puzzles/s"
+                            + "  (%d threads, %d rounds)", name, stats.puzzles, stats.solved,
+                    total / Math.max(1, rounds), best, threads, rounds));
+        }
+    }
+}
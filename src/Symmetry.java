@@ -0,0 +1,298 @@
+import java.util.SplittableRandom;
+
+/**
+ * Symmetry is a transformation of the Sudoku symmetry group: it moves cells and relabels numbers
+ * so that a valid grid stays valid and a puzzle keeps the same number of solutions.
+ * <p>
+ * It is stored as two index permutations: cell i of the result comes from cell cellMap[i] of the source,
+ * and number n becomes numMap[n] (0 stays 0). Row, column, band and stack permutations, transpose,
+ * rotation and relabeling are all of this form, so any composition of them is applied in one pass.
+ * Symmetry objects never change, compose them with then().
+ */
+public final class Symmetry {
+    private static final Symmetry IDENTITY = new Symmetry(identityCells(), identityNums());
+    // copy of the grid for apply(grid), one for each thread
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[81]);
+
+    private final byte[] cellMap;
+    private final byte[] numMap;
+
+    private Symmetry(byte[] cellMap, byte[] numMap) {
+        this.cellMap = cellMap;
+        this.numMap = numMap;
+    }
+
+    private static byte[] identityCells() {
+        byte[] cells = new byte[81];
+        for (int i = 0; i < 81; i++) {
+            cells[i] = (byte) i;
+        }
+        return cells;
+    }
+
+    private static byte[] identityNums() {
+        byte[] nums = new byte[10];
+        for (int n = 0; n <= 9; n++) {
+            nums[n] = (byte) n;
+        }
+        return nums;
+    }
+
+    /**
+     * @return the transformation that changes nothing
+     */
+    public static Symmetry identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Permute rows and columns.
+     * Row r of the result is row rowPerm[r] of the source, and the same for columns.
+     * The permutations must keep rows in bands and columns in stacks to keep the grid valid,
+     * see isValidLinePermutation().
+     *
+     * @param rowPerm permutation of rows (0~8)
+     * @param colPerm permutation of columns (0~8)
+     * @return the transformation
+     */
+    public static Symmetry permute(int[] rowPerm, int[] colPerm) {
+        if (!isValidLinePermutation(rowPerm) || !isValidLinePermutation(colPerm)) {
+            throw new IllegalArgumentException("rows and columns can only move inside bands and stacks, or with them");
+        }
+        byte[] cells = new byte[81];
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                cells[row * 9 + col] = (byte) (rowPerm[row] * 9 + colPerm[col]);
+            }
+        }
+        return new Symmetry(cells, identityNums());
+    }
+
+    /**
+     * Check if a permutation of 9 lines moves whole bands (or stacks) and keeps lines inside them.
+     *
+     * @param perm the permutation
+     * @return true if the permutation keeps a grid valid
+     */
+    public static boolean isValidLinePermutation(int[] perm) {
+        if (perm.length != 9) {
+            return false;
+        }
+        int seen = 0;
+        for (int i = 0; i < 9; i++) {
+            if (perm[i] < 0 || perm[i] > 8 || perm[i] / 3 != perm[i - i % 3] / 3) {
+                return false;
+            }
+            seen |= 1 << perm[i];
+        }
+        return seen == 0x1FF;
+    }
+
+    /**
+     * Swap two rows of the same band.
+     *
+     * @param row1 the first row (1~9)
+     * @param row2 the second row (1~9)
+     * @return the transformation
+     */
+    public static Symmetry swapRows(int row1, int row2) {
+        return permute(swap(row1 - 1, row2 - 1, 1), identityLine());
+    }
+
+    /**
+     * Swap two columns of the same stack.
+     *
+     * @param col1 the first column (1~9)
+     * @param col2 the second column (1~9)
+     * @return the transformation
+     */
+    public static Symmetry swapCols(int col1, int col2) {
+        return permute(identityLine(), swap(col1 - 1, col2 - 1, 1));
+    }
+
+    /**
+     * Swap two bands (row blocks), i.e. rows 1,2,3 with rows 4,5,6.
+     *
+     * @param band1 the first band (1~3)
+     * @param band2 the second band (1~3)
+     * @return the transformation
+     */
+    public static Symmetry swapBands(int band1, int band2) {
+        return permute(swap((band1 - 1) * 3, (band2 - 1) * 3, 3), identityLine());
+    }
+
+    /**
+     * Swap two stacks (column blocks), i.e. columns 7,8,9 with columns 4,5,6.
+     *
+     * @param stack1 the first stack (1~3)
+     * @param stack2 the second stack (1~3)
+     * @return the transformation
+     */
+    public static Symmetry swapStacks(int stack1, int stack2) {
+        return permute(identityLine(), swap((stack1 - 1) * 3, (stack2 - 1) * 3, 3));
+    }
+
+    /**
+     * @return the transformation that mirrors the grid on its main diagonal
+     */
+    public static Symmetry transpose() {
+        byte[] cells = new byte[81];
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                cells[row * 9 + col] = (byte) (col * 9 + row);
+            }
+        }
+        return new Symmetry(cells, identityNums());
+    }
+
+    /**
+     * @return the transformation that rotates the grid 90 degree clockwise
+     */
+    public static Symmetry rotate() {
+        byte[] cells = new byte[81];
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                cells[row * 9 + col] = (byte) ((8 - col) * 9 + row);
+            }
+        }
+        return new Symmetry(cells, identityNums());
+    }
+
+    /**
+     * Relabel numbers.
+     *
+     * @param perm number n becomes perm[n - 1], perm is a permutation of 1~9
+     * @return the transformation
+     */
+    public static Symmetry relabel(int[] perm) {
+        byte[] nums = new byte[10];
+        int seen = 0;
+        for (int n = 1; n <= 9; n++) {
+            nums[n] = (byte) perm[n - 1];
+            seen |= CandidateSet.bit(perm[n - 1]);
+        }
+        if (seen != CandidateSet.ALL) {
+            throw new IllegalArgumentException("not a permutation of 1~9");
+        }
+        return new Symmetry(identityCells(), nums);
+    }
+
+    /**
+     * Pick a transformation uniformly from the whole symmetry group:
+     * 2 (transpose) x 6^4 (row order) x 6^4 (column order) x 9! (numbers).
+     *
+     * @param random the random generator
+     * @return the transformation
+     */
+    public static Symmetry random(SplittableRandom random) {
+        Symmetry symmetry = permute(randomLinePermutation(random), randomLinePermutation(random));
+        if (random.nextBoolean()) {
+            symmetry = transpose().then(symmetry);
+        }
+        int[] perm = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        shuffle(perm, random);
+        return symmetry.then(relabel(perm));
+    }
+
+    /**
+     * @param random the random generator
+     * @return a random line permutation that keeps a grid valid
+     */
+    private static int[] randomLinePermutation(SplittableRandom random) {
+        int[] blocks = {0, 1, 2};
+        shuffle(blocks, random);
+        int[] perm = new int[9];
+        int[] inner = new int[3];
+        for (int block = 0; block < 3; block++) {
+            inner[0] = 0;
+            inner[1] = 1;
+            inner[2] = 2;
+            shuffle(inner, random);
+            for (int k = 0; k < 3; k++) {
+                perm[block * 3 + k] = blocks[block] * 3 + inner[k];
+            }
+        }
+        return perm;
+    }
+
+    private static void shuffle(int[] array, SplittableRandom random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    private static int[] identityLine() {
+        return new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8};
+    }
+
+    /**
+     * @return the identity line permutation with lines [a, a + length) and [b, b + length) swapped
+     */
+    private static int[] swap(int a, int b, int length) {
+        int[] perm = identityLine();
+        for (int k = 0; k < length; k++) {
+            perm[a + k] = b + k;
+            perm[b + k] = a + k;
+        }
+        return perm;
+    }
+
+    /**
+     * Compose two transformations.
+     *
+     * @param next the transformation applied after this one
+     * @return the transformation that applies this one and then next
+     */
+    public Symmetry then(Symmetry next) {
+        byte[] cells = new byte[81];
+        for (int i = 0; i < 81; i++) {
+            cells[i] = cellMap[next.cellMap[i]];
+        }
+        byte[] nums = new byte[10];
+        for (int n = 0; n <= 9; n++) {
+            nums[n] = next.numMap[numMap[n]];
+        }
+        return new Symmetry(cells, nums);
+    }
+
+    /**
+     * @return the transformation that undoes this one
+     */
+    public Symmetry inverse() {
+        byte[] cells = new byte[81];
+        for (int i = 0; i < 81; i++) {
+            cells[cellMap[i]] = (byte) i;
+        }
+        byte[] nums = new byte[10];
+        for (int n = 0; n <= 9; n++) {
+            nums[numMap[n]] = (byte) n;
+        }
+        return new Symmetry(cells, nums);
+    }
+
+    /**
+     * Apply the transformation to a grid.
+     *
+     * @param source the 81 numbers to transform
+     * @param target the array to write the result, must not be source
+     */
+    public void apply(byte[] source, byte[] target) {
+        for (int i = 0; i < 81; i++) {
+            target[i] = numMap[source[cellMap[i]]];
+        }
+    }
+
+    /**
+     * Apply the transformation to a grid in place, through a copy in the scratch array of the thread.
+     *
+     * @param grid the 81 numbers to transform
+     */
+    public void apply(byte[] grid) {
+        byte[] copy = SCRATCH.get();
+        System.arraycopy(grid, 0, copy, 0, 81);
+        apply(copy, grid);
+    }
+}
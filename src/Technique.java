@@ -0,0 +1,131 @@
+/**
+ * The solving techniques implemented by Board, from the cheapest to the most expensive.
+ * reference: https://www.sudokuoftheday.com/techniques/
+ */
+public enum Technique implements SolvingTechnique {
+    NAKED_SINGLE(1) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveSingleSolution(1);
+        }
+    },
+    HIDDEN_SINGLE_ROW(2) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveALLRowsSingleCandidate();
+        }
+    },
+    HIDDEN_SINGLE_COL(2) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveALLColsSingleCandidate();
+        }
+    },
+    HIDDEN_SINGLE_BLOCK(2) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveAllBlockSingleCandidate();
+        }
+    },
+    POINTING_PAIR(3) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solvePointingPairs();
+        }
+    },
+    BOX_LINE_REDUCTION(3) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveBoxLineReduction();
+        }
+    },
+    NAKED_PAIR(4) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveNakedSubsets(2);
+        }
+    },
+    HIDDEN_PAIR(6) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveHiddenSubsets(2);
+        }
+    },
+    NAKED_TRIPLE(8) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveNakedSubsets(3);
+        }
+    },
+    HIDDEN_TRIPLE(10) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveHiddenSubsets(3);
+        }
+    },
+    NAKED_QUAD(12) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveNakedSubsets(4);
+        }
+    },
+    HIDDEN_QUAD(14) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveHiddenSubsets(4);
+        }
+    },
+    X_WING(15) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveFish(2);
+        }
+    },
+    XY_WING(16) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveXYWing();
+        }
+    },
+    SIMPLE_COLORING(16) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveSimpleColoring();
+        }
+    },
+    SWORDFISH(17) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveFish(3);
+        }
+    },
+    JELLYFISH(18) {
+        @Override
+        public boolean apply(Board board) {
+            return board.solveFish(4);
+        }
+    },
+    ASSUMPTION(20) {
+        @Override
+        public boolean apply(Board board) {
+            return Board.solveByAssumption(board);
+        }
+    };
+
+    // how hard the technique is for a human, used to grade puzzles
+    private final int difficulty;
+
+    Technique(int difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    @Override
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    @Override
+    public int getDifficulty() {
+        return difficulty;
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * TechniquePipeline runs a list of SolvingTechniques in order: on every step the first technique
+ * that makes progress wins, and the next step starts again from the first technique.
+ * <p>
+ * It records how often every technique is tried, how often it makes progress, how many cells it
+ * places and how long it takes, so the order can be tuned by measured cost per step
+ * (see sortByCost()) instead of being hard-coded. The same numbers also go to SolverMetrics,
+ * for JMX and JDK Flight Recorder.
+ * A pipeline is not thread-safe, use one for each thread.
+ */
+public final class TechniquePipeline {
+    /**
+     * A technique in the pipeline with its counters.
+     */
+    public static final class Stage {
+        private final SolvingTechnique technique;
+        private long attempts;
+        private long hits;
+        private long placements;
+        private long nanos;
+
+        private Stage(SolvingTechnique technique) {
+            this.technique = technique;
+        }
+
+        public SolvingTechnique getTechnique() {
+            return technique;
+        }
+
+        /**
+         * @return how many times the technique is applied
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return how many times the technique makes progress
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return how many cells the technique places
+         */
+        public long getPlacements() {
+            return placements;
+        }
+
+        /**
+         * @return total time spent in the technique, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return hits / attempts, 0 if never applied
+         */
+        public double getHitRate() {
+            return attempts == 0 ? 0 : (double) hits / attempts;
+        }
+
+        /**
+         * @return nanoseconds spent for every placed cell, infinity if nothing is placed
+         */
+        public double getCostPerPlacement() {
+            return placements == 0 ? Double.POSITIVE_INFINITY : (double) nanos / placements;
+        }
+
+        /**
+         * @return nanoseconds spent for every step that makes progress, infinity if it never does
+         */
+        public double getCostPerHit() {
+            return hits == 0 ? Double.POSITIVE_INFINITY : (double) nanos / hits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s attempts %9d  hit rate %6.2f%%  placements %8d  %10.0f ns/placement",
+                    technique.getName(), attempts, getHitRate() * 100, placements, getCostPerPlacement());
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param techniques techniques in the order they are tried
+     */
+    public TechniquePipeline(List<? extends SolvingTechnique> techniques) {
+        for (SolvingTechnique technique : techniques) {
+            stages.add(new Stage(technique));
+        }
+    }
+
+    /**
+     * @return a pipeline of all techniques of Board, cheapest first
+     */
+    public static TechniquePipeline standard() {
+        List<SolvingTechnique> techniques = new ArrayList<>();
+        for (Technique technique : Technique.values()) {
+            techniques.add(technique);
+        }
+        return new TechniquePipeline(techniques);
+    }
+
+    /**
+     * Build a pipeline from technique names, i.e. "naked_single,hidden_single_row,assumption".
+     *
+     * @param names technique names separated by commas
+     * @return the pipeline
+     */
+    public static TechniquePipeline fromNames(String names) {
+        List<SolvingTechnique> techniques = new ArrayList<>();
+        for (String name : names.split(",")) {
+            if (!name.trim().isEmpty()) {
+                techniques.add(Technique.valueOf(name.trim().toUpperCase()));
+            }
+        }
+        return new TechniquePipeline(techniques);
+    }
+
+    /**
+     * Apply the techniques in order until one of them makes progress.
+     *
+     * @param board the board to work on
+     * @return the technique that makes progress, null if none can
+     */
+    public SolvingTechnique step(Board board) {
+        // events are only made while a recording asks for them, the common case allocates nothing
+        boolean recording = SolverMetrics.isStepEventEnabled();
+        for (Stage stage : stages) {
+            int empty = board.getEmptyCount();
+            SolverMetrics.TechniqueEvent event = null;
+            if (recording) {
+                event = new SolverMetrics.TechniqueEvent();
+                event.begin();
+            }
+            long start = System.nanoTime();
+            boolean progress = stage.technique.apply(board);
+            long nanos = System.nanoTime() - start;
+            stage.nanos += nanos;
+            stage.attempts++;
+            SolverMetrics.technique(stage.technique, nanos, progress);
+            int placed = empty - board.getEmptyCount();
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.technique = stage.technique.getName();
+                    event.progress = progress;
+                    event.placed = placed;
+                    event.commit();
+                }
+            }
+            if (progress) {
+                stage.hits++;
+                stage.placements += placed;
+                return stage.technique;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keep stepping until the board is solved or no technique can make progress.
+     *
+     * @param board the board to work on
+     * @return false if the board is not solved
+     */
+    public boolean solve(Board board) {
+        SolverMetrics.SolveEvent event = null;
+        if (SolverMetrics.isSolveEventEnabled()) {
+            event = new SolverMetrics.SolveEvent();
+            event.begin();
+        }
+        int steps = 0;
+        boolean solved = true;
+        while (!board.isSolved()) {
+            if (step(board) == null) {
+                solved = false;
+                break;
+            }
+            steps++;
+        }
+        if (event != null) {
+            event.end();
+        }
+        if (event != null && event.shouldCommit()) {
+            event.solved = solved;
+            event.steps = steps;
+            event.emptyLeft = board.getEmptyCount();
+            event.commit();
+        }
+        return solved;
+    }
+
+    /**
+     * @return the techniques in the order they are tried
+     */
+    public List<SolvingTechnique> getTechniques() {
+        List<SolvingTechnique> techniques = new ArrayList<>();
+        for (Stage stage : stages) {
+            techniques.add(stage.technique);
+        }
+        return techniques;
+    }
+
+    /**
+     * @return the stages with their counters, in the order they are tried
+     */
+    public List<Stage> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    /**
+     * Reorder the techniques by measured cost per step that makes progress, cheapest first.
+     * Steps are used instead of placements because some techniques only remove possibilities.
+     * Techniques that have never made progress keep their order at the end.
+     */
+    public void sortByCost() {
+        stages.sort(Comparator.comparingDouble(Stage::getCostPerHit));
+    }
+
+    /**
+     * Drop a technique from the pipeline.
+     *
+     * @param technique the technique
+     * @return false if the technique is not in the pipeline
+     */
+    public boolean remove(SolvingTechnique technique) {
+        return stages.removeIf(stage -> stage.technique == technique);
+    }
+
+    /**
+     * Set all counters to zero.
+     */
+    public void resetStats() {
+        for (Stage stage : stages) {
+            stage.attempts = 0;
+            stage.hits = 0;
+            stage.placements = 0;
+            stage.nanos = 0;
+        }
+    }
+
+    /**
+     * Print the counters of every technique on console, then the metrics of all pipelines.
+     */
+    public void printStats() {
+        for (Stage stage : stages) {
+            System.out.println(stage);
+        }
+        if (SolverMetrics.ENABLED) {
+            System.out.println(SolverMetrics.get());
+        }
+    }
+}